@@ -0,0 +1,33 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates headless game environments for the benchmarks.
+ */
+public class BenchmarkEnv {
+
+    /**
+     * @param featureCount - the number of features on the cards (the deck has 3^featureCount cards).
+     * @param table        - the table dimensions, as "rows x columns" (e.g. "3x4").
+     * @param players      - the number of (computer) players.
+     * @return             - a game environment without a display, delays or freezes.
+     */
+    public static Env create(int featureCount, String table, int players) {
+        String[] dimensions = table.split("x");
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", "3");
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        properties.setProperty("Rows", dimensions[0]);
+        properties.setProperty("Columns", dimensions[1]);
+        properties.setProperty("ComputerPlayers", Integer.toString(players));
+        properties.setProperty("RandomSeed", "1");
+
+        Logger logger = Logger.getLogger("SetGameLogger.benchmark");
+        logger.setLevel(Level.OFF);
+        Config config = new Config(logger, Headless.headlessProperties(properties));
+        return new Env(logger, config, new RecordingUserInterface(config, false), new UtilImpl(config));
+    }
+}
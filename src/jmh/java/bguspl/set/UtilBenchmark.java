@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the card utilities: set search on a full and a half deck, set testing and feature lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    int featureCount;
+
+    private Util util;
+    private List<Integer> deck;
+    private List<Integer> halfDeck;
+    private int[][] triples;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Env env = BenchmarkEnv.create(featureCount, "3x4", 2);
+        util = env.util;
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+
+        Random random = new Random(featureCount);
+        List<Integer> shuffled = new ArrayList<>(deck);
+        Collections.shuffle(shuffled, random);
+        halfDeck = new ArrayList<>(shuffled.subList(0, deck.size() / 2));
+
+        // random triples, about a third of them are legal sets
+        triples = new int[1024][];
+        for (int i = 0; i < triples.length; ++i) {
+            int a = random.nextInt(deck.size()), b = random.nextInt(deck.size());
+            int c = i % 3 == 0 ? ((UtilImpl) util).completeSet(a, b) : random.nextInt(deck.size());
+            triples[i] = new int[]{a, b, c};
+        }
+    }
+
+    private int[] nextTriple() {
+        return triples[next++ & (triples.length - 1)];
+    }
+
+    @Benchmark
+    public List<int[]> findSetsFirst() {
+        return util.findSets(halfDeck, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsAll() {
+        return util.findSets(deck, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(nextTriple());
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(nextTriple());
+    }
+}
@@ -0,0 +1,77 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the dealer's claim verification: a batch of one claim per player is submitted and judged. The claims
+ * are not legal sets (a legal set would change the table), so every claim is checked against the table and tested.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealerBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    int featureCount;
+
+    @Param({"3x4", "6x6"})
+    String table;
+
+    @Param({"2", "8", "32"})
+    int players;
+
+    private Dealer dealer;
+    private int[][] slots;
+    private int[][] cards;
+    private int[][] versions;
+
+    @Setup
+    public void setUp() {
+        Env env = BenchmarkEnv.create(featureCount, table, players);
+        Table board = new Table(env);
+        int filled = Math.min(env.config.tableSize, env.config.deckSize);
+        Player[] all = new Player[env.config.players];
+        dealer = new Dealer(env, board, all);
+        for (int i = 0; i < all.length; i++)
+            all[i] = new Player(env, dealer, board, i, false);
+
+        // cards 0, 1 and 3 are not a set, so any 3 of the cards 3k, 3k + 1 and 3k + 3 are not a set either
+        for (int i = 0; i < filled; ++i)
+            board.placeCard(i, i);
+        slots = new int[players][];
+        cards = new int[players][];
+        versions = new int[players][];
+        for (int player = 0; player < players; ++player) {
+            int first = 3 * (player % ((filled - 1) / 3));
+            slots[player] = new int[]{first, first + 1, first + 3};
+            cards[player] = slots[player].clone();
+            versions[player] = new int[slots[player].length];
+            for (int i = 0; i < slots[player].length; ++i)
+                versions[player][i] = board.getSlotVersion(slots[player][i]);
+        }
+    }
+
+    @Benchmark
+    public void judgeClaims() {
+        for (int player = 0; player < players; ++player)
+            dealer.submitedSet(player, slots[player], cards[player], versions[player]);
+        dealer.removeCardsFromTable();
+    }
+}
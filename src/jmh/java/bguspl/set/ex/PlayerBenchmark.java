@@ -0,0 +1,65 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a key press, from Player.keyPressed to the token placed (or removed) on the table. The player's loop
+ * body runs in the benchmark thread, so no thread hand-off is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    int featureCount;
+
+    @Param({"3x4", "6x6"})
+    String table;
+
+    @Param({"2", "8", "32"})
+    int players;
+
+    private Player player;
+    private int slot;
+
+    @Setup
+    public void setUp() {
+        Env env = BenchmarkEnv.create(featureCount, table, players);
+        Table board = new Table(env);
+        for (int i = 0; i < Math.min(env.config.tableSize, env.config.deckSize); ++i)
+            board.placeCard(i, i);
+        Player[] all = new Player[env.config.players];
+        Dealer dealer = new Dealer(env, board, all);
+        for (int i = 0; i < all.length; i++)
+            all[i] = new Player(env, dealer, board, i, false);
+        player = all[all.length - 1];
+    }
+
+    @Benchmark
+    public long keyPressed() {
+        // press the same slot twice (place and remove), so the player never claims a set
+        player.keyPressed(slot);
+        player.act();
+        player.keyPressed(slot);
+        slot = (slot + 1) % 2;
+        return player.act();
+    }
+}
@@ -0,0 +1,80 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the table operations on a full table: replacing a card (removeCard and placeCard, which also update
+ * the set index) and placing and removing a token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    @Param({"3", "4", "5", "6"})
+    int featureCount;
+
+    @Param({"3x4", "6x6"})
+    String table;
+
+    @Param({"2", "8", "32"})
+    int players;
+
+    private Table board;
+
+    /**
+     * The number of filled slots (the whole table, unless the deck is too small).
+     */
+    private int filled;
+
+    /**
+     * The next slot to act on, and a card that is not on the table.
+     */
+    private int slot;
+    private int spare;
+
+    @Setup
+    public void setUp() {
+        Env env = BenchmarkEnv.create(featureCount, table, players);
+        board = new Table(env);
+        filled = Math.min(env.config.tableSize, env.config.deckSize - 1);
+        for (int i = 0; i < filled; ++i)
+            board.placeCard(i, i);
+        spare = filled;
+    }
+
+    @Benchmark
+    public void replaceCard() {
+        int removed = board.getCardInSlot(slot);
+        board.removeCard(slot);
+        board.placeCard(spare, slot);
+        spare = removed;
+        slot = (slot + 1) % filled;
+    }
+
+    @Benchmark
+    public boolean placeAndRemoveToken() {
+        int player = slot % players;
+        board.placeToken(player, slot);
+        boolean removed = board.removeToken(player, slot);
+        slot = (slot + 1) % filled;
+        return removed;
+    }
+}
@@ -0,0 +1,103 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of the table under contention: many player threads place and remove tokens all over the
+ * board while a dealer thread replaces the cards of a set (featureSize slots) at a time, as after a legal claim. The
+ * players are only kept off the slots being replaced, so their throughput should hardly depend on the dealer's.
+ * Both results matter: board:player is the token operations per microsecond of all the players, and board:dealer is
+ * the replaced sets per microsecond (featureSize removeCard and placeCard pairs each), i.e. how long a legal claim
+ * keeps its slots out of play while the players hammer the board.
+ * Note: a token change only takes the next board version (see Table.getBoard), and the boards are built by their
+ * readers, so this benchmark (which reads no boards) measures the token path without them. Building a board on every
+ * token change instead cut the players' throughput by a third to two thirds.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableContentionBenchmark {
+
+    private static final int PLAYERS = 7;
+
+    @Param({"3x4", "6x6"})
+    String table;
+
+    private Table board;
+    private Env env;
+    private final AtomicInteger nextPlayer = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        env = BenchmarkEnv.create(4, table, PLAYERS);
+        board = new Table(env);
+        for (int slot = 0; slot < env.config.tableSize; ++slot)
+            board.placeCard(slot, slot);
+    }
+
+    /**
+     * The state of a player thread: its id and the next slot it presses.
+     */
+    @State(Scope.Thread)
+    public static class PlayerState {
+        int player = -1;
+        int slot;
+    }
+
+    /**
+     * The state of the dealer thread: the next slot to replace and a card that is not on the table.
+     */
+    @State(Scope.Thread)
+    public static class DealerState {
+        int slot;
+        int spare = -1;
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(PLAYERS)
+    public boolean player(PlayerState state) {
+        if (state.player < 0) {
+            state.player = nextPlayer.getAndIncrement() % PLAYERS;
+            state.slot = state.player;
+        }
+        int slot = state.slot;
+        state.slot = (slot + 1) % env.config.tableSize;
+        return board.placeToken(state.player, slot) || board.removeToken(state.player, slot);
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(1)
+    public void dealer(DealerState state) {
+        if (state.spare < 0) state.spare = env.config.tableSize;
+        for (int i = 0; i < env.config.featureSize; ++i) {
+            int slot = state.slot;
+            state.slot = (slot + 1) % env.config.tableSize;
+            int removed = board.getCardInSlot(slot);
+            board.removeCard(slot);
+            board.placeCard(state.spare, slot);
+            state.spare = removed;
+        }
+    }
+}
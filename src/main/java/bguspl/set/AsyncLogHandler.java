@@ -0,0 +1,153 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that never does I/O on the logging thread. Records are published to a bounded ring buffer (a CAS on
+ * a sequence number, without locks), and a background writer thread formats them and writes them to the stream in
+ * batches. When the ring buffer is full the record is dropped (and counted) rather than stalling the caller.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * The time the writer waits for more records before writing what it has.
+     */
+    private static final long FLUSH_INTERVAL_NANOS = 50_000_000;
+
+    private final Writer writer;
+
+    /**
+     * The ring buffer of records. A slot is null until its record is published, and is cleared by the writer.
+     */
+    private final AtomicReferenceArray<LogRecord> ring;
+    private final int mask;
+
+    /**
+     * The sequence number of the next record to publish, and of the next record to write.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    /**
+     * The number of records dropped because the ring buffer was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * True iff the writer was woken early and has not drained since (so it is woken once, not by every publisher).
+     */
+    private final AtomicBoolean woken = new AtomicBoolean();
+
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    /**
+     * The class constructor. Starts the writer thread.
+     *
+     * @param out      - the stream to write the formatted records to (closed when the handler is closed).
+     * @param capacity - the capacity of the ring buffer (rounded up to a power of 2).
+     */
+    public AsyncLogHandler(OutputStream out, int capacity) {
+        writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        writerThread = new Thread(this::drainLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= ring.length()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        ring.lazySet((int) sequence & mask, record);
+
+        // the writer is woken early only when the ring buffer fills up, not on every record
+        if (sequence - tail >= ring.length() / 2 && !woken.get() && woken.compareAndSet(false, true))
+            LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * The main loop of the writer thread: writes the published records every FLUSH_INTERVAL_NANOS (or earlier, when
+     * the ring buffer is half full), until the handler is closed.
+     */
+    private void drainLoop() {
+        while (!closed) {
+            woken.set(false); // before draining, so a record published meanwhile can wake the writer again
+            drain();
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+        }
+        drain();
+    }
+
+    /**
+     * Formats and writes the published records as a single batch.
+     */
+    private synchronized void drain() {
+        int count = 0;
+        try {
+            for (LogRecord record = ring.get((int) tail & mask); record != null; record = ring.get((int) tail & mask)) {
+                ring.lazySet((int) tail & mask, null);
+                tail = tail + 1;
+                writer.write(getFormatter() != null ? getFormatter().format(record) : record.getMessage());
+                ++count;
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0)
+                writer.write("[" + lost + " log records were dropped]" + System.lineSeparator());
+            if (count > 0 || lost > 0) writer.flush();
+        } catch (IOException e) {
+            reportError("Cannot write the log records.", e, ErrorManager.WRITE_FAILURE);
+        } catch (RuntimeException e) {
+            reportError("Cannot format a log record.", e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    /**
+     * Writes the records that were published so far (on the calling thread).
+     */
+    @Override
+    public void flush() {
+        drain();
+    }
+
+    /**
+     * Writes the remaining records, stops the writer thread and closes the stream.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError("Cannot close the log.", e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * The card images of a deck, scaled to the cell size and packed into pages of a sprite atlas (images that are
+ * compatible with the display, so drawing a card is a plain copy). An atlas is built once per deck layout and cell
+ * size, and is shared by all the windows (and games) that use them.
+ * <p>
+ * Small decks are decoded in parallel when the atlas is built. The images of larger decks are decoded lazily, on the
+ * common pool, when a card is placed on the table (see load), and a page of the atlas is allocated only once one of its
+ * cards is loaded. Until then the card is drawn as the empty card, so painting never waits for a decode.
+ */
+public final class CardAtlas {
+
+    /**
+     * Decks of up to this size are loaded when the atlas is built, larger decks are loaded lazily.
+     */
+    static final int EAGER_DECK_SIZE = 81;
+
+    /**
+     * The card id of the empty card image.
+     */
+    public static final int EMPTY_CARD = -1;
+
+    /**
+     * The number of columns and rows of cards in a page of the atlas.
+     */
+    private static final int PAGE_COLUMNS = 9;
+    private static final int PAGE_ROWS = 3;
+    private static final int PAGE_CARDS = PAGE_COLUMNS * PAGE_ROWS;
+
+    /**
+     * The atlases that were built so far, by deck layout and cell size.
+     */
+    private static final ConcurrentMap<String, CardAtlas> atlases = new ConcurrentHashMap<>();
+
+    private final Config config;
+    private final int cellWidth;
+    private final int cellHeight;
+
+    /**
+     * The pages of the atlas (null until one of their cards is loaded), the cards that were loaded and the cards that
+     * are loaded or being loaded. Guarded by this.
+     */
+    private final BufferedImage[] pages;
+    private final boolean[] loaded;
+    private final boolean[] requested;
+    private int loadedCards;
+
+    /**
+     * The empty card image, scaled to the cell size.
+     */
+    private final BufferedImage emptyCard;
+
+    /**
+     * @param config - the game configuration.
+     * @return       - the atlas of the deck and cell size of the configuration.
+     */
+    public static CardAtlas of(Config config) {
+        String key = config.featureSize + "^" + config.featureCount + "@" + config.cellWidth + "x" + config.cellHeight;
+        return atlases.computeIfAbsent(key, ignored -> new CardAtlas(config, config.deckSize > EAGER_DECK_SIZE));
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param config - the game configuration.
+     * @param lazy   - true iff the cards should be loaded when they are placed (see load), false to load them all now.
+     */
+    CardAtlas(Config config, boolean lazy) {
+        assert config.featureSize < 10; // otherwise there will be naming conflicts
+        this.config = config;
+        cellWidth = config.cellWidth;
+        cellHeight = config.cellHeight;
+        pages = new BufferedImage[(config.deckSize + PAGE_CARDS - 1) / PAGE_CARDS];
+        loaded = new boolean[config.deckSize];
+        requested = new boolean[config.deckSize];
+        emptyCard = createImage(cellWidth, cellHeight);
+        Graphics2D g = emptyCard.createGraphics();
+        g.drawImage(decode("empty_card"), 0, 0, cellWidth, cellHeight, null);
+        g.dispose();
+        if (lazy) return;
+        Arrays.fill(requested, true);
+
+        // decoding is the expensive part, so it is done in parallel, and the decoded images are packed one by one
+        BufferedImage[] decoded = IntStream.range(0, config.deckSize).parallel()
+                .mapToObj(this::decode).toArray(BufferedImage[]::new);
+        for (int card = 0; card < config.deckSize; ++card)
+            pack(card, decoded[card]);
+    }
+
+    /**
+     * Loads the image of a card in the background, unless it was loaded (or is being loaded) already.
+     *
+     * @param card     - the card id.
+     * @param onLoaded - called (on the loading thread) once the card can be drawn, e.g. to repaint its cell.
+     */
+    public void load(int card, Runnable onLoaded) {
+        synchronized (this) {
+            if (requested[card]) return;
+            requested[card] = true;
+        }
+        CompletableFuture.runAsync(() -> {
+            BufferedImage image;
+            try {
+                image = decode(card); // the slow part, done outside the lock
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    requested[card] = false; // the next placement of the card tries again
+                }
+                throw e;
+            }
+            pack(card, image);
+            onLoaded.run();
+        });
+    }
+
+    /**
+     * Draws a card, or the empty card image if the card was not loaded yet (see load).
+     *
+     * @param g    - the graphics to draw on.
+     * @param card - the card id (EMPTY_CARD for the empty card image).
+     * @param x    - the left of the cell.
+     * @param y    - the top of the cell.
+     */
+    public synchronized void draw(Graphics g, int card, int x, int y) {
+        if (card == EMPTY_CARD || !loaded[card]) {
+            g.drawImage(emptyCard, x, y, null);
+            return;
+        }
+        int sx = card % PAGE_CARDS % PAGE_COLUMNS * cellWidth;
+        int sy = card % PAGE_CARDS / PAGE_COLUMNS * cellHeight;
+        g.drawImage(pages[card / PAGE_CARDS], x, y, x + cellWidth, y + cellHeight,
+                sx, sy, sx + cellWidth, sy + cellHeight, null);
+    }
+
+    /**
+     * @return - the number of card images loaded so far (not including the empty card image).
+     */
+    public synchronized int loadedCards() {
+        return loadedCards;
+    }
+
+    /**
+     * @return - the heap used by the pages of the atlas (in bytes, assuming 4 bytes per pixel).
+     */
+    public synchronized long heapBytes() {
+        long bytes = 4L * cellWidth * cellHeight;
+        for (BufferedImage page : pages)
+            if (page != null) bytes += 4L * page.getWidth() * page.getHeight();
+        return bytes;
+    }
+
+    /**
+     * Reads the image of a card from the resources.
+     *
+     * @param card - the card id.
+     * @return     - the decoded image.
+     */
+    private BufferedImage decode(int card) {
+        return decode(UserInterfaceImpl.intInBaseToPaddedString(card, config.featureCount, config.featureSize));
+    }
+
+    /**
+     * Reads an image from the card resources.
+     *
+     * @param name - the name of the image file (without the extension).
+     * @return     - the decoded image.
+     */
+    private BufferedImage decode(String name) {
+        String filename = "cards/" + name + ".png";
+        URL resource = getClass().getClassLoader().getResource(filename);
+        if (resource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        try {
+            return ImageIO.read(resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Scales the image of a card into its cell of the atlas.
+     *
+     * @param card  - the card id.
+     * @param image - the decoded image of the card.
+     */
+    private synchronized void pack(int card, BufferedImage image) {
+        BufferedImage page = pages[card / PAGE_CARDS];
+        if (page == null)
+            page = pages[card / PAGE_CARDS] = createImage(PAGE_COLUMNS * cellWidth, PAGE_ROWS * cellHeight);
+        Graphics2D g = page.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, card % PAGE_CARDS % PAGE_COLUMNS * cellWidth, card % PAGE_CARDS / PAGE_COLUMNS * cellHeight,
+                cellWidth, cellHeight, null);
+        g.dispose();
+        loaded[card] = true;
+        ++loadedCards;
+    }
+
+    /**
+     * @return - a new image, compatible with the display if there is one.
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
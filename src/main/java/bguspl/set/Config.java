@@ -50,6 +50,11 @@ public class Config {
      */
     public final boolean hints;
 
+    /**
+     * Whether the game threads print their life cycle (and the CPU reports) to the console or not
+     */
+    public final boolean consoleInfo;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -75,6 +80,46 @@ public class Config {
      */
     public final long tableDelayMillis;
 
+    /**
+     * The seed of the dealer's random draws (games with the same seed and the same moves are the same)
+     * Note: if no seed is configured, a different seed is chosen for every game.
+     */
+    public final long randomSeed;
+
+    /**
+     * The number of milliseconds between reports of the CPU time used by each thread (0 for no reports)
+     */
+    public final long cpuReportMillis;
+
+    /**
+     * True iff the engine metrics should be collected and exposed over JMX (see Metrics)
+     */
+    public final boolean metrics;
+
+    /**
+     * The profiles of the computer players (random, novice, average, expert, instant or thinkMillis:keyMillis:mistakeRate)
+     * Note: if there are more computer players than profiles, the profiles are assigned in turn.
+     */
+    public final String[] botProfiles;
+
+    /**
+     * The file to journal the events of the game to, for a replay (empty for no journal)
+     * Note: %d in the name is replaced with the random seed of the game, so games with different seeds do not share a file.
+     * Note: the journal records every token placed or removed under a single lock, so the players contend on it.
+     */
+    public final String journalFile;
+
+    /**
+     * The file to keep the latest snapshot of the game in, to restore the game after a crash (empty for no snapshots)
+     * Note: %d in the name is replaced with the random seed of the game, as in journalFile.
+     */
+    public final String snapshotFile;
+
+    /**
+     * The time (in milliseconds) between snapshots of the game
+     */
+    public final long snapshotMillis;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -96,6 +141,11 @@ public class Config {
      */
     public final int tableSize;
 
+    /**
+     * The largest supported table (the tokens of every player are kept as a bitmask of the slots)
+     */
+    public static final int MAX_TABLE_SIZE = Long.SIZE;
+
     /**
      * The width (in pixels) of each cell
      */
@@ -144,7 +194,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -180,11 +230,21 @@ public class Config {
         players = humanPlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        consoleInfo = Boolean.parseBoolean(properties.getProperty("ConsoleInfo", "True"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        String seed = properties.getProperty("RandomSeed", "").trim();
+        randomSeed = seed.isEmpty() ? System.nanoTime() : Long.parseLong(seed);
+        cpuReportMillis = (long) (Double.parseDouble(properties.getProperty("CpuReportSeconds", "0")) * 1000.0);
+        metrics = Boolean.parseBoolean(properties.getProperty("Metrics", "False"));
+        botProfiles = properties.getProperty("BotProfiles", "random").split(",");
+        Arrays.setAll(botProfiles, i -> botProfiles[i].trim());
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        snapshotFile = properties.getProperty("SnapshotFile", "").trim();
+        snapshotMillis = (long) (Double.parseDouble(properties.getProperty("SnapshotSeconds", "1")) * 1000.0);
 
         // ui data
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -194,6 +254,9 @@ public class Config {
         rows = Integer.parseInt(properties.getProperty("Rows", "3"));
         columns = Integer.parseInt(properties.getProperty("Columns", "4"));
         tableSize = rows * columns;
+        if (tableSize > MAX_TABLE_SIZE)
+            throw new IllegalArgumentException("A table of " + rows + "x" + columns + " slots is too large, the table has "
+                    + MAX_TABLE_SIZE + " slots at most (e.g. 8x8).");
         cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
         cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
         PlayerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
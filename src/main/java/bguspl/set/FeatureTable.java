@@ -0,0 +1,177 @@
+package bguspl.set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable table of the features of every card in a deck. The table is built once per deck layout (i.e. per
+ * featureSize and featureCount), so answering feature queries and testing sets never allocates.
+ *
+ * @inv features(card)[i] == (packed(card) >>> (i * bitsPerFeature)) & featureMask
+ */
+public final class FeatureTable {
+
+    /**
+     * The tables that were built so far, by deck layout (see key method).
+     */
+    private static final ConcurrentMap<Long, FeatureTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * The number of features on the cards.
+     */
+    public final int featureCount;
+
+    /**
+     * The number of choices for each feature.
+     */
+    public final int featureSize;
+
+    /**
+     * The total number of cards in the deck.
+     */
+    public final int deckSize;
+
+    /**
+     * The number of bits used for a single feature in a packed card.
+     */
+    private final int bitsPerFeature;
+
+    /**
+     * A mask of the lowest bitsPerFeature bits.
+     */
+    private final long featureMask;
+
+    /**
+     * The features of each card (the rows are shared and must not be modified).
+     */
+    private final int[][] features;
+
+    /**
+     * The features of each card packed into a single long, feature i at bits [i * bitsPerFeature, (i+1) * bitsPerFeature).
+     */
+    private final long[] packed;
+
+    /**
+     * The place value of each feature in a card id (i.e. card = sum of features[i] * weights[i]).
+     */
+    private final int[] weights;
+
+    private FeatureTable(int featureSize, int featureCount) {
+        if (featureSize < 2 || featureSize > Long.SIZE)
+            throw new IllegalArgumentException("feature size " + featureSize + " is not supported.");
+
+        this.featureSize = featureSize;
+        this.featureCount = featureCount;
+        deckSize = (int) Math.pow(featureSize, featureCount);
+        bitsPerFeature = Integer.SIZE - Integer.numberOfLeadingZeros(featureSize - 1);
+        if (bitsPerFeature * featureCount > Long.SIZE)
+            throw new IllegalArgumentException(featureCount + " features of size " + featureSize + " cannot be packed.");
+        featureMask = (1L << bitsPerFeature) - 1;
+
+        weights = new int[featureCount];
+        for (int i = featureCount - 1, weight = 1; i >= 0; --i, weight *= featureSize)
+            weights[i] = weight;
+
+        features = new int[deckSize][featureCount];
+        packed = new long[deckSize];
+        for (int card = 0; card < deckSize; ++card) {
+            int remainder = card;
+            for (int i = featureCount - 1; i >= 0; --i) {
+                features[card][i] = remainder % featureSize;
+                packed[card] |= (long) features[card][i] << (i * bitsPerFeature);
+                remainder /= featureSize;
+            }
+        }
+    }
+
+    private static long key(int featureSize, int featureCount) {
+        return (long) featureSize << Integer.SIZE | featureCount;
+    }
+
+    /**
+     * Returns the feature table of the deck described by the configuration. Tables are immutable, so all the games
+     * with the same deck layout share a single table.
+     *
+     * @param config - the game configuration.
+     * @return       - the feature table of the configured deck.
+     */
+    public static FeatureTable of(Config config) {
+        return tables.computeIfAbsent(key(config.featureSize, config.featureCount),
+                ignored -> new FeatureTable(config.featureSize, config.featureCount));
+    }
+
+    /**
+     * @param card    - the card id.
+     * @param feature - the feature index.
+     * @return        - the value of the feature on the card.
+     */
+    public int feature(int card, int feature) {
+        return features[card][feature];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - the features of the card. The returned array is shared and must not be modified (Util returns
+     *               copies, the game itself reads the features with feature, packed and isSet).
+     */
+    int[] features(int card) {
+        return features[card];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - the features of the card packed into a single long (see class invariant).
+     */
+    public long packed(int card) {
+        return packed[card];
+    }
+
+    /**
+     * Checks if an array of cards forms a legal set, i.e. every feature is either the same on all the cards or
+     * different on all the cards.
+     *
+     * @param cards - the array of cards.
+     * @return      - true iff the array forms a legal set.
+     */
+    public boolean isSet(int[] cards) {
+        if (cards.length == 3 && featureSize == 3)
+            return isSet(cards[0], cards[1], cards[2]);
+
+        for (int i = 0, shift = 0; i < featureCount; ++i, shift += bitsPerFeature) {
+            long values = 0;
+            for (int card : cards)
+                values |= 1L << ((packed[card] >>> shift) & featureMask);
+            int distinct = Long.bitCount(values);
+            if ((distinct == 1) == (distinct == cards.length)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if three cards form a legal set. Valid only when featureSize == 3, in which case a feature is the same on
+     * all cards or different on all cards iff the sum of its values is divisible by 3.
+     */
+    private boolean isSet(int a, int b, int c) {
+        long pa = packed[a], pb = packed[b], pc = packed[c];
+        for (int i = 0; i < featureCount; ++i, pa >>>= 2, pb >>>= 2, pc >>>= 2)
+            if (((pa & 3) + (pb & 3) + (pc & 3)) % 3 != 0) return false;
+        return true;
+    }
+
+    /**
+     * Computes the only card that completes the two given cards to a legal set. Valid only when featureSize == 3: in
+     * every feature the third value is either the same as the other two, or the one value that is different from
+     * both, i.e. (-a - b) mod 3.
+     *
+     * @param a - the first card id.
+     * @param b - the second card id.
+     * @return  - the card id of the third card in the set.
+     */
+    public int completeSet(int a, int b) {
+        int[] fa = features[a], fb = features[b];
+        int third = 0;
+        for (int i = 0; i < featureCount; ++i)
+            third += (6 - fa[i] - fb[i]) % 3 * weights[i];
+        return third;
+    }
+}
@@ -0,0 +1,380 @@
+package bguspl.set;
+
+import bguspl.set.ex.GameHost;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts games for remote players over TCP (see NetworkUserInterface for the protocol). A single thread serves all the
+ * connections with a Selector (non-blocking I/O), and the games run on a GameHost. Every connection takes the seat of
+ * a human player in the game that is being filled, and the game starts once all its human seats are taken. The slots
+ * selected by a remote player are forwarded to Player.keyPressed, and the display updates of each game are sent to
+ * its remote players in batches, once every tick.
+ */
+public class GameServer implements Runnable, AutoCloseable {
+
+    /**
+     * The capacity of the outgoing buffer of a connection. A remote player that falls this far behind is disconnected.
+     */
+    private static final int OUTBOX_CAPACITY = 1 << 16;
+
+    /**
+     * The server's logger.
+     */
+    private final Logger logger;
+
+    /**
+     * The configuration properties of the games (without the random seed), the seed of the first game, and the
+     * objects shared by all the games.
+     */
+    private final Properties properties;
+    private final long firstSeed;
+    private final Config firstConfig;
+    private final Util util;
+
+    /**
+     * Runs the games.
+     */
+    private final GameHost host;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The interval (in milliseconds) between batches of display updates.
+     */
+    private final long tickMillis;
+
+    /**
+     * The games that were started and their remote players were not disconnected yet.
+     */
+    private final List<Room> rooms = new ArrayList<>();
+
+    /**
+     * The game that is being filled (null if none).
+     */
+    private Room lobby;
+
+    /**
+     * The number of games created so far.
+     */
+    private long gamesCreated;
+
+    private volatile boolean closed;
+
+    /**
+     * The class constructor. The server starts accepting connections when it is run.
+     *
+     * @param logger     - the server's logger.
+     * @param properties - the configuration properties of the games (the table delay is set to 0).
+     * @param port       - the TCP port (0 for any free port).
+     * @param threads    - the number of threads that run the games.
+     * @param tickMillis - the interval (in milliseconds) between batches of display updates.
+     * @throws IllegalArgumentException - if the games have no human players.
+     * @throws IOException              - if the port cannot be opened.
+     */
+    public GameServer(Logger logger, Properties properties, int port, int threads, long tickMillis) throws IOException {
+        this.logger = logger;
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        this.properties.setProperty("TableDelaySeconds", "0"); // the games must not block the threads of the host
+        firstConfig = new Config(logger, this.properties);
+        if (firstConfig.humanPlayers < 1)
+            throw new IllegalArgumentException("The games of the server need at least one human player.");
+        firstSeed = firstConfig.randomSeed;
+        util = new UtilImpl(firstConfig);
+        if (firstConfig.metrics) Metrics.enable();
+        this.tickMillis = tickMillis;
+
+        host = new GameHost(threads);
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return - the TCP port the server listens on.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * The server thread starts here: serves the connections until the server is closed.
+     */
+    @Override
+    public void run() {
+        logger.log(Level.INFO, "Server listening on port " + getPort() + ".");
+        long nextTick = System.currentTimeMillis() + tickMillis;
+        try {
+            while (!closed) {
+                long timeout = nextTick - System.currentTimeMillis();
+                if (timeout > 0) selector.select(timeout);
+                else selector.selectNow();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) read(connection);
+                        if (key.isValid() && key.isWritable()) flush(connection);
+                    }
+                }
+
+                if (System.currentTimeMillis() >= nextTick) {
+                    tick();
+                    nextTick = System.currentTimeMillis() + tickMillis;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Server failed: " + e);
+        } finally {
+            for (Room room : rooms)
+                room.game.terminate();
+            host.close();
+            for (SelectionKey key : selector.keys())
+                closeQuietly(key);
+            try { selector.close(); } catch (IOException ignored) {}
+            logger.log(Level.INFO, "Server closed.");
+        }
+    }
+
+    /**
+     * Stops the server (the running games are terminated).
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a connection and seats it in the lobby, which starts its game once it is full.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        if (lobby == null) lobby = new Room();
+        int seat = 0;
+        while (lobby.seats[seat] != null) ++seat;
+        Connection connection = new Connection(channel, lobby, seat);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        lobby.seats[seat] = connection;
+        if (++lobby.connected == lobby.seats.length) {
+            for (Connection seated : lobby.seats) {
+                if (seated.welcomed) continue; // still seated from an earlier attempt to start the game
+                seated.welcomed = true;
+                NetworkUserInterface.putWelcome(seated.outbox, seated.player, firstConfig.players,
+                        firstConfig.tableSize);
+                flush(seated);
+            }
+            // a player whose welcome could not be sent was disconnected, and the lobby waits for another one
+            if (lobby.connected < lobby.seats.length) return;
+            lobby.game.start();
+            rooms.add(lobby);
+            lobby = null;
+        }
+    }
+
+    /**
+     * Reads the slots selected by a remote player and forwards them to its player (before the game starts, and after
+     * it is over, they are ignored).
+     */
+    private void read(Connection connection) {
+        ByteBuffer inbox = connection.inbox;
+        int count;
+        try {
+            count = connection.channel.read(inbox);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            disconnect(connection);
+            return;
+        }
+
+        inbox.flip();
+        Room room = connection.room;
+        if (room != lobby && !room.game.result().isDone()) {
+            while (inbox.hasRemaining()) {
+                int slot = inbox.get() & 0xFF;
+                if (slot < firstConfig.tableSize)
+                    room.game.getPlayer(connection.player).keyPressed(slot);
+            }
+        }
+        inbox.clear();
+    }
+
+    /**
+     * Sends the display updates of every game since the last tick to its remote players, and disconnects the players
+     * of the games that are over (once their outgoing buffers are flushed).
+     */
+    private void tick() {
+        for (Iterator<Room> iterator = rooms.iterator(); iterator.hasNext(); ) {
+            Room room = iterator.next();
+            boolean over = room.game.result().isDone(); // checked first, so the final updates are in the batch
+            room.batch = room.ui.takeMessages(room.batch);
+            for (Connection connection : room.seats) {
+                if (connection == null) continue;
+                if (room.batch.hasRemaining()) send(connection, room.batch);
+                if (over) {
+                    connection.closing = true;
+                    if (connection.key.isValid() && connection.outbox.position() == 0) disconnect(connection);
+                }
+            }
+            if (over) iterator.remove();
+        }
+    }
+
+    /**
+     * Queues a batch of messages to a remote player and writes as much as the socket takes.
+     *
+     * @param connection - the connection of the remote player.
+     * @param batch      - the messages (in read mode, not consumed).
+     */
+    private void send(Connection connection, ByteBuffer batch) {
+        if (!connection.key.isValid()) return;
+        if (batch.remaining() > connection.outbox.remaining()) {
+            logger.log(Level.WARNING, "Player " + connection.player + " fell behind and was disconnected.");
+            disconnect(connection);
+            return;
+        }
+        connection.outbox.put(batch.duplicate());
+        flush(connection);
+    }
+
+    /**
+     * Writes the outgoing buffer of a connection, and waits for the socket to be writable if it did not take it all.
+     */
+    private void flush(Connection connection) {
+        ByteBuffer outbox = connection.outbox;
+        try {
+            outbox.flip();
+            connection.channel.write(outbox);
+            outbox.compact();
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+        if (outbox.position() > 0)
+            connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        else if (connection.closing)
+            disconnect(connection);
+        else
+            connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Closes a connection. A game whose remote players all left is terminated, and a seat in the lobby is freed.
+     */
+    private void disconnect(Connection connection) {
+        if (!connection.key.isValid()) return;
+        closeQuietly(connection.key);
+        Room room = connection.room;
+        if (room == lobby) {
+            room.seats[connection.player] = null;
+            --room.connected;
+        } else if (--room.connected == 0 && !connection.closing)
+            room.game.terminate();
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try { key.channel().close(); } catch (IOException ignored) {}
+    }
+
+    /**
+     * A game of the server and the connections of its remote players.
+     */
+    private class Room {
+        final NetworkUserInterface ui = new NetworkUserInterface();
+        final GameHost.Game game;
+        final Connection[] seats;
+        int connected;
+
+        /**
+         * The last batch of messages taken from the user interface (reused for the next one).
+         */
+        ByteBuffer batch = ByteBuffer.allocate(1024);
+
+        Room() {
+            properties.setProperty("RandomSeed", Long.toString(firstSeed + gamesCreated++));
+            Config config = new Config(logger, properties);
+            game = host.create(new Env(logger, config, ui, util));
+            seats = new Connection[config.humanPlayers];
+        }
+    }
+
+    /**
+     * The connection of a remote player.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final Room room;
+        final int player;
+        SelectionKey key;
+
+        /**
+         * The bytes received and the bytes not sent yet (both in write mode).
+         */
+        final ByteBuffer inbox = ByteBuffer.allocate(64);
+        final ByteBuffer outbox = ByteBuffer.allocate(OUTBOX_CAPACITY);
+
+        /**
+         * True iff the welcome message was sent to the remote player.
+         */
+        boolean welcomed;
+
+        /**
+         * True iff the game is over and the connection is closed once its outgoing buffer is flushed.
+         */
+        boolean closing;
+
+        Connection(SocketChannel channel, Room room, int player) {
+            this.channel = channel;
+            this.room = room;
+            this.player = player;
+        }
+    }
+
+    /**
+     * The server's main function.
+     *
+     * @param args - [the TCP port (default 7777)] [the number of threads that run the games (default: the number of
+     *               processors)] [the configuration file (default config.properties)].
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String configFilename = args.length > 2 ? args[2] : "config.properties";
+
+        Logger logger = Logger.getLogger("SetGameLogger.server");
+        Properties properties = Config.loadProperties(configFilename, logger);
+        try (GameServer server = new GameServer(logger, properties, port, threads, 20)) {
+            System.out.printf("Info: Server listening on port %d.%n", server.getPort());
+            server.run();
+        }
+    }
+}
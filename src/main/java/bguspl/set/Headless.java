@@ -0,0 +1,105 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs complete games back to back without a display, as fast as the CPU allows (e.g. to soak-test the engine).
+ * All the players are computer players, and all the delays (table delay, freezes) are zero.
+ */
+public class Headless {
+
+    /**
+     * The game's headless main function. Plays the games and reports the number of games per second.
+     *
+     * @param args - [the number of games to play (default 100)] [the configuration file (default config.properties)].
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String configFilename = args.length > 1 ? args[1] : "config.properties";
+
+        Logger logger = initLogger();
+        Properties properties = headlessProperties(Config.loadProperties(configFilename, logger));
+        Config firstConfig = new Config(logger, properties);
+        Util util = new UtilImpl(firstConfig);
+
+        long points = 0;
+        long start = System.nanoTime();
+        for (int game = 0; game < games; ++game) {
+            properties.setProperty("RandomSeed", Long.toString(firstConfig.randomSeed + game));
+            Config config = new Config(logger, properties);
+            RecordingUserInterface ui = new RecordingUserInterface(config, false);
+            for (int score : play(new Env(logger, config, ui, util)))
+                points += score;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Info: Played %d games of %d players in %.2f seconds (%.1f games/second, %.1f sets/game).%n",
+                games, firstConfig.players, seconds, games / seconds, (double) points / games);
+        logger.log(Level.INFO, "Played " + games + " games in " + seconds + " seconds.");
+    }
+
+    /**
+     * Makes a configuration headless: all the players become instant computer players, and there are no delays or
+     * freezes. The table is reshuffled only when it has no legal set (i.e. no turn timeout), and the game threads do
+     * not print their life cycle to the console (which would dominate the run time).
+     *
+     * @param properties - the game configuration properties (not modified).
+     * @return           - the headless configuration properties.
+     */
+    public static Properties headlessProperties(Properties properties) {
+        Properties headless = new Properties();
+        headless.putAll(properties);
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        headless.setProperty("HumanPlayers", "0");
+        headless.setProperty("ComputerPlayers", Integer.toString(Math.max(config.players, 1)));
+        headless.setProperty("Hints", "False");
+        headless.setProperty("ConsoleInfo", "False");
+        headless.setProperty("TurnTimeoutSeconds", "-1");
+        headless.setProperty("PointFreezeSeconds", "0");
+        headless.setProperty("PenaltyFreezeSeconds", "0");
+        headless.setProperty("TableDelaySeconds", "0");
+        headless.setProperty("BotProfiles", "instant");
+        return headless;
+    }
+
+    /**
+     * Plays a complete game in the calling thread (the calling thread runs the dealer).
+     *
+     * @param env - the game environment objects.
+     * @return    - the final scores of the players.
+     */
+    public static int[] play(Env env) {
+        Player[] players = new Player[env.config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+
+        dealer.run();
+        try {
+            dealer.awaitSnapshots();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int[] scores = new int[players.length];
+        for (int i = 0; i < players.length; i++)
+            scores[i] = players[i].getScore();
+        return scores;
+    }
+
+    /**
+     * @return - a logger that logs warnings and errors only, to the console.
+     */
+    private static Logger initLogger() {
+        Logger logger = Logger.getLogger("SetGameLogger.headless");
+        logger.setLevel(Level.WARNING);
+        return logger;
+    }
+}
@@ -0,0 +1,130 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative values (e.g. latencies). Values below 16 have buckets of their own, and every
+ * power of 2 above them is split into 8 buckets, so a percentile is off by at most 12.5%. Recording a value is a few
+ * atomic additions, without locks or allocations.
+ */
+public final class Histogram implements HistogramMBean {
+
+    private static final int EXACT_VALUES = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_BITS = 4; // EXACT_VALUES == 1 << EXACT_BITS
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(EXACT_VALUES + (Long.SIZE - EXACT_BITS) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param unit - the unit of the recorded values (e.g. "us").
+     */
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Records a value (negative values are recorded as 0).
+     *
+     * @param value - the value.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    private static int bucket(long value) {
+        if (value < EXACT_VALUES) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_VALUES + (exponent - EXACT_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return - the smallest value of a bucket.
+     */
+    private static long lowestValue(int bucket) {
+        if (bucket < EXACT_VALUES) return bucket;
+        int exponent = (bucket - EXACT_VALUES) / SUB_BUCKETS + EXACT_BITS;
+        long subBucket = (bucket - EXACT_VALUES) % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return           - the (lowest value of the bucket of the) value at the percentile, 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int bucket = 0; bucket < buckets.length(); ++bucket)
+            total += buckets.get(bucket);
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length(); ++bucket) {
+            seen += buckets.get(bucket);
+            if (seen >= rank && seen > 0) return lowestValue(bucket);
+        }
+        return 0;
+    }
+
+    @Override
+    public String getUnit() {
+        return unit;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public long getP50() {
+        return percentile(50);
+    }
+
+    @Override
+    public long getP90() {
+        return percentile(90);
+    }
+
+    @Override
+    public long getP99() {
+        return percentile(99);
+    }
+
+    @Override
+    public long getP999() {
+        return percentile(99.9);
+    }
+
+    @Override
+    public void reset() {
+        for (int bucket = 0; bucket < buckets.length(); ++bucket)
+            buckets.set(bucket, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
@@ -0,0 +1,25 @@
+package bguspl.set;
+
+/**
+ * The JMX view of a Histogram.
+ */
+public interface HistogramMBean {
+
+    String getUnit();
+
+    long getCount();
+
+    double getMean();
+
+    long getMax();
+
+    long getP50();
+
+    long getP90();
+
+    long getP99();
+
+    long getP999();
+
+    void reset();
+}
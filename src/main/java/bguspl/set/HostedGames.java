@@ -0,0 +1,84 @@
+package bguspl.set;
+
+import bguspl.set.ex.GameHost;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many concurrent games in one JVM on a bounded pool of threads (see GameHost), without a display. The games are
+ * headless games (see Headless) that share the immutable resources (the Util object and its feature tables). Reports
+ * the memory footprint of a game, once created and while in play, and the number of games per second.
+ */
+public class HostedGames {
+
+    /**
+     * The hosted games' main function.
+     *
+     * @param args - [the number of games (default 500)] [the number of threads (default: the number of processors)]
+     *               [the configuration file (default config.properties)].
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String configFilename = args.length > 2 ? args[2] : "config.properties";
+
+        Logger logger = Logger.getLogger("SetGameLogger.hosted");
+        logger.setLevel(Level.WARNING);
+        Properties properties = Headless.headlessProperties(Config.loadProperties(configFilename, logger));
+        Config firstConfig = new Config(logger, properties);
+        Util util = new UtilImpl(firstConfig);
+        if (firstConfig.metrics) Metrics.enable();
+
+        try (GameHost host = new GameHost(threads)) {
+            long heapBefore = usedHeap();
+            GameHost.Game[] hosted = new GameHost.Game[games];
+            for (int game = 0; game < games; ++game) {
+                properties.setProperty("RandomSeed", Long.toString(firstConfig.randomSeed + game));
+                Config config = new Config(logger, properties);
+                hosted[game] = host.create(new Env(logger, config, new RecordingUserInterface(config, false), util));
+            }
+            long heapCreated = usedHeap();
+            long createdFootprint = (heapCreated - heapBefore) / games;
+
+            long points = 0;
+            long start = System.nanoTime();
+            CompletableFuture<?>[] results = new CompletableFuture<?>[games];
+            for (int game = 0; game < games; ++game) {
+                hosted[game].start();
+                results[game] = hosted[game].result();
+            }
+
+            // the games are stepped in turn, so once a game is over every game has dealt its cards, and the games that
+            // are over keep their state (the hosted array holds them): the footprint is that of games in play
+            CompletableFuture.anyOf(results).join();
+            long gcStart = System.nanoTime();
+            long playingFootprint = (usedHeap() - heapBefore) / games;
+            long gcNanos = System.nanoTime() - gcStart;
+
+            for (GameHost.Game game : hosted)
+                for (int score : game.result().join())
+                    points += score;
+            double seconds = (System.nanoTime() - start - gcNanos) / 1e9; // without the measurement
+
+            System.out.printf("Info: Hosted %d games of %d players on %d threads: %d bytes per game created, %d bytes "
+                            + "per game in play, %.2f seconds (%.1f games/second, %.1f sets/game).%n", games,
+                    firstConfig.players, threads, createdFootprint, playingFootprint, seconds, games / seconds,
+                    (double) points / games);
+            logger.log(Level.INFO, "Hosted " + games + " games in " + seconds + " seconds, " + createdFootprint
+                    + " bytes per game created, " + playingFootprint + " bytes per game in play.");
+        }
+    }
+
+    /**
+     * @return - the heap in use (in bytes) after a garbage collection.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
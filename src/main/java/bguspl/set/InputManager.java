@@ -36,7 +36,8 @@ class InputManager extends KeyAdapter {
         int keyCode = e.getKeyCode();
         int player = keyMap[keyCode] - 1;
         if (player >= 0){
-            env.logger.log(Level.SEVERE, "Key " + keyCode + " was pressed by player " + player);
+            if (env.logger.isLoggable(Level.FINE))
+                env.logger.log(Level.FINE, "Key {0} was pressed by player {1}", new Object[]{keyCode, player});
             players[player].keyPressed(keyToSlot[keyCode]);
         }
     }
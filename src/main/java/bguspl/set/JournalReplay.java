@@ -0,0 +1,41 @@
+package bguspl.set;
+
+import bguspl.set.ex.Replay;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays journaled games (see the JournalFile property) at full speed, and reports whether each replay reproduced the
+ * journaled game and how much faster than the game it ran.
+ */
+public class JournalReplay {
+
+    /**
+     * The journal replay's main function.
+     *
+     * @param args - the journal files to replay.
+     */
+    public static void main(String[] args) {
+        Logger logger = Logger.getLogger("SetGameLogger.replay");
+        logger.setLevel(Level.WARNING);
+        int failures = 0;
+        for (String file : args) {
+            try {
+                Replay replay = Replay.run(Paths.get(file), logger);
+                System.out.printf("Info: %s: %d events, %d steps replayed in %.2fms (the game took %dms, %.0fx), "
+                                + "%d divergences, scores %s.%n", file, replay.events, replay.steps,
+                        replay.replayMillis, replay.gameMillis, replay.gameMillis / replay.replayMillis,
+                        replay.divergences, Arrays.toString(replay.scores));
+                if (replay.divergences > 0) ++failures;
+            } catch (IOException e) {
+                System.out.printf("Error: cannot replay %s: %s%n", file, e.getMessage());
+                ++failures;
+            }
+        }
+        if (failures > 0) System.exit(1);
+    }
+}
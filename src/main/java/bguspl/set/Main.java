@@ -6,6 +6,7 @@ import bguspl.set.ex.Table;
 
 import java.awt.*;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -29,7 +30,8 @@ public class Main {
         Config config = new Config(logger, "config.properties");
         UserInterfaceImpl ui = new UserInterfaceImpl(logger, config);
         EventQueue.invokeLater(() -> ui.setVisible(true));
-        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Env env = new Env(logger, config, new UserInterfaceDispatcher(ui, config), new UtilImpl(config));
+        if (config.metrics) Metrics.enable();
 
         // create the game entities
         Player[] players = new Player[env.config.players];
@@ -37,6 +39,11 @@ public class Main {
         Dealer dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        try { // after a crash, the game goes on from its last snapshot
+            if (dealer.restore()) System.out.println("Info: Game restored from its snapshot.");
+        } catch (IOException e) {
+            env.logger.log(Level.WARNING, "Cannot restore the game, starting a new game.", e);
+        }
         ui.addKeyListener(new InputManager(env, players));
         ui.addWindowListener(new WindowManager(env, dealer));
 
@@ -44,7 +51,10 @@ public class Main {
         Thread dealerThread = new Thread(dealer, "dealer");
         dealerThread.start();
 
-        try {dealerThread.join();} catch (InterruptedException ignored) {}
+        try {
+            dealerThread.join();
+            dealer.awaitSnapshots(); // a game that ended must not be restored on the next launch
+        } catch (InterruptedException ignored) {}
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
         System.out.println("Info: Thread " + Thread.currentThread().getName() + " terminated.");
 
@@ -54,13 +64,14 @@ public class Main {
 
     private static Logger initLogger(boolean disableTimestamp) {
 
-        FileHandler fh;
+        // the records are formatted and written to the file by a background thread (see AsyncLogHandler)
+        AsyncLogHandler fh;
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            fh = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            fh = new AsyncLogHandler(new FileOutputStream("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log"), 8192);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -71,12 +82,14 @@ public class Main {
             private static final String formatWithTimestamp = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
             private static final String formatWithoutTimestamp = "[%2$-7s] %3$s%n";
 
+            // called by the thread that drains the records, one at a time: the log writer thread, or a thread that
+            // flushes the handler
             @Override
-            public synchronized String format(LogRecord lr) {
+            public String format(LogRecord lr) {
                 return String.format(disableTimestamp ? formatWithoutTimestamp : formatWithTimestamp,
                         new Date(lr.getMillis()),
                         lr.getLevel().getLocalizedName(),
-                        lr.getMessage()
+                        formatMessage(lr)
                 );
             }
         });
@@ -0,0 +1,142 @@
+package bguspl.set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The engine metrics: latency histograms and counters of all the games in the JVM, exposed over JMX (under the
+ * bguspl.set domain) once they are enabled. The metrics are disabled by default, and the engine checks enabled()
+ * before it measures anything, so disabled metrics cost a single volatile read.
+ */
+public final class Metrics implements MetricsMBean {
+
+    private static volatile boolean enabled;
+
+    /**
+     * The time from a key press to the token it placed.
+     */
+    public static final Histogram keyPressToToken = new Histogram("us");
+
+    /**
+     * The time from a claim to the dealer's verdict.
+     */
+    public static final Histogram claimToVerdict = new Histogram("us");
+
+    /**
+     * How late the dealer woke up after its deadline (timer display update or reshuffle).
+     */
+    public static final Histogram dealerJitter = new Histogram("ms");
+
+    /**
+     * The cards dealt in each second of play (seconds in which no card was dealt are not recorded).
+     */
+    public static final Histogram cardsDealtPerSecond = new Histogram("cards");
+
+    /**
+     * The reshuffles of each game.
+     */
+    public static final Histogram reshufflesPerGame = new Histogram("reshuffles");
+
+    /**
+     * The freezes of the players (after a point or a penalty), from the verdict until the player accepts keys again.
+     */
+    public static final Histogram freezeTime = new Histogram("ms");
+
+    /**
+     * The counters.
+     */
+    public static final LongAdder keyPresses = new LongAdder();
+    public static final LongAdder tokensPlaced = new LongAdder();
+    public static final LongAdder claims = new LongAdder();
+    public static final LongAdder legalSets = new LongAdder();
+    public static final LongAdder penalties = new LongAdder();
+    public static final LongAdder dismissedClaims = new LongAdder();
+    public static final LongAdder cardsDealt = new LongAdder();
+    public static final LongAdder reshuffles = new LongAdder();
+    public static final LongAdder gamesPlayed = new LongAdder();
+
+    private Metrics() {}
+
+    /**
+     * @return - true iff the metrics are collected.
+     */
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts collecting the metrics and registers their MBeans (the first time it is called).
+     *
+     * @throws IllegalStateException - if the MBeans cannot be registered.
+     */
+    public static synchronized void enable() {
+        if (enabled) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, "type=Counters", new Metrics());
+            register(server, "type=Histogram,name=KeyPressToToken", keyPressToToken);
+            register(server, "type=Histogram,name=ClaimToVerdict", claimToVerdict);
+            register(server, "type=Histogram,name=DealerJitter", dealerJitter);
+            register(server, "type=Histogram,name=CardsDealtPerSecond", cardsDealtPerSecond);
+            register(server, "type=Histogram,name=ReshufflesPerGame", reshufflesPerGame);
+            register(server, "type=Histogram,name=FreezeTime", freezeTime);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the metrics MBeans.", e);
+        }
+        enabled = true;
+    }
+
+    private static void register(MBeanServer server, String properties, Object mbean) throws JMException {
+        ObjectName name = new ObjectName("bguspl.set:" + properties);
+        if (!server.isRegistered(name))
+            server.registerMBean(mbean, name);
+    }
+
+    @Override
+    public long getKeyPresses() {
+        return keyPresses.sum();
+    }
+
+    @Override
+    public long getTokensPlaced() {
+        return tokensPlaced.sum();
+    }
+
+    @Override
+    public long getClaims() {
+        return claims.sum();
+    }
+
+    @Override
+    public long getLegalSets() {
+        return legalSets.sum();
+    }
+
+    @Override
+    public long getPenalties() {
+        return penalties.sum();
+    }
+
+    @Override
+    public long getDismissedClaims() {
+        return dismissedClaims.sum();
+    }
+
+    @Override
+    public long getCardsDealt() {
+        return cardsDealt.sum();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.sum();
+    }
+
+    @Override
+    public long getGamesPlayed() {
+        return gamesPlayed.sum();
+    }
+}
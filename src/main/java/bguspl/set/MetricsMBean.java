@@ -0,0 +1,25 @@
+package bguspl.set;
+
+/**
+ * The JMX view of the engine counters (see Metrics).
+ */
+public interface MetricsMBean {
+
+    long getKeyPresses();
+
+    long getTokensPlaced();
+
+    long getClaims();
+
+    long getLegalSets();
+
+    long getPenalties();
+
+    long getDismissedClaims();
+
+    long getCardsDealt();
+
+    long getReshuffles();
+
+    long getGamesPlayed();
+}
@@ -0,0 +1,160 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A UserInterface implementation for remote players (see GameServer). It encodes every call as a compact binary
+ * message and buffers the messages until the server takes them (once per tick), so they are sent in batches.
+ * <p>
+ * A message is a type byte followed by fixed size big-endian fields: shorts for player ids, cards and slots, and ints
+ * for times (in milliseconds) and scores. The only variable size message is WINNERS: a short count of winners followed
+ * by their ids. A remote player selects a slot by sending a single byte (the slot).
+ */
+public class NetworkUserInterface implements UserInterface {
+
+    /**
+     * The message types (the message fields are listed after each type).
+     */
+    public static final byte WELCOME = 0;             // player, players, tableSize (sent by the server only)
+    public static final byte PLACE_CARD = 1;          // card, slot
+    public static final byte REMOVE_CARD = 2;         // slot
+    public static final byte COUNTDOWN = 3;           // millis (int), warn (byte)
+    public static final byte ELAPSED = 4;             // millis (int)
+    public static final byte SCORE = 5;               // player, score (int)
+    public static final byte FREEZE = 6;              // player, millis (int)
+    public static final byte PLACE_TOKEN = 7;         // player, slot
+    public static final byte REMOVE_TOKENS = 8;       //
+    public static final byte REMOVE_SLOT_TOKENS = 9;  // slot
+    public static final byte REMOVE_TOKEN = 10;       // player, slot
+    public static final byte WINNERS = 11;            // count, player * count
+
+    /**
+     * The size in bytes of the messages of each type (including the type byte), and of the WINNERS message header.
+     */
+    private static final int[] messageSizes = {7, 5, 3, 6, 5, 7, 7, 5, 1, 3, 5, 3};
+
+    /**
+     * The messages that were not taken by the server yet (in write mode).
+     */
+    private ByteBuffer messages = ByteBuffer.allocate(1024);
+
+    /**
+     * Finds the size of the message at the position of a buffer (e.g. to split the received bytes into messages).
+     *
+     * @param buffer - the received bytes (in read mode, not consumed).
+     * @return       - the size in bytes of the message, or 0 if the buffer does not hold all of it yet.
+     * @throws IllegalArgumentException - if the message type is unknown.
+     */
+    public static int messageSize(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (!buffer.hasRemaining()) return 0;
+        byte type = buffer.get(position);
+        if (type < 0 || type >= messageSizes.length)
+            throw new IllegalArgumentException("Unknown message type " + type + ".");
+        int size = messageSizes[type];
+        if (type == WINNERS && buffer.remaining() >= size)
+            size += 2 * buffer.getShort(position + 1);
+        return buffer.remaining() >= size ? size : 0;
+    }
+
+    /**
+     * Writes a WELCOME message, which tells a remote player its id and the game dimensions.
+     *
+     * @param buffer    - the buffer to write to.
+     * @param player    - the id of the remote player.
+     * @param players   - the number of players.
+     * @param tableSize - the number of slots on the table.
+     */
+    public static void putWelcome(ByteBuffer buffer, int player, int players, int tableSize) {
+        buffer.put(WELCOME).putShort((short) player).putShort((short) players).putShort((short) tableSize);
+    }
+
+    /**
+     * Takes the buffered messages, in a single swap: the buffer of the messages is returned and the given buffer is
+     * used for the next messages.
+     *
+     * @param spare - an empty buffer for the next messages (e.g. the buffer returned by the previous call).
+     * @return      - the buffered messages (in read mode).
+     */
+    public synchronized ByteBuffer takeMessages(ByteBuffer spare) {
+        ByteBuffer taken = messages;
+        spare.clear();
+        messages = spare;
+        taken.flip();
+        return taken;
+    }
+
+    /**
+     * @param bytes - the size of the message to write.
+     * @return      - the messages buffer, with room for the message.
+     */
+    private ByteBuffer reserve(int bytes) {
+        if (messages.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(messages.capacity() * 2, messages.position() + bytes));
+            messages.flip();
+            messages = grown.put(messages);
+        }
+        return messages;
+    }
+
+    private static int toInt(long millies) {
+        return (int) Math.max(Math.min(millies, Integer.MAX_VALUE), 0);
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        reserve(5).put(PLACE_CARD).putShort((short) card).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        reserve(3).put(REMOVE_CARD).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        reserve(6).put(COUNTDOWN).putInt(toInt(millies)).put((byte) (warn ? 1 : 0));
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        reserve(5).put(ELAPSED).putInt(toInt(millies));
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        reserve(7).put(SCORE).putShort((short) player).putInt(score);
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        reserve(7).put(FREEZE).putShort((short) player).putInt(toInt(millies));
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        reserve(5).put(PLACE_TOKEN).putShort((short) player).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        reserve(1).put(REMOVE_TOKENS);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        reserve(3).put(REMOVE_SLOT_TOKENS).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        reserve(5).put(REMOVE_TOKEN).putShort((short) player).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        ByteBuffer buffer = reserve(3 + 2 * players.length).put(WINNERS).putShort((short) players.length);
+        for (int player : players)
+            buffer.putShort((short) player);
+    }
+}
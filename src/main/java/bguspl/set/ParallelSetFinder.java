@@ -0,0 +1,190 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds sets in large decks by splitting the search space across a fork-join pool. The search space is split by the
+ * smallest index of the set in the deck: every task searches the sets whose first card is in its range, so tasks
+ * never find the same set twice. All tasks stop as soon as count sets were found.
+ */
+public class ParallelSetFinder {
+
+    /**
+     * Ranges of first indexes of at most this size are searched sequentially.
+     */
+    private static final int LEAF_SIZE = 8;
+
+    /**
+     * The features of the cards in the deck.
+     */
+    private final FeatureTable features;
+
+    /**
+     * The pool the search tasks run in.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * @param features - the features of the cards in the deck.
+     * @param pool     - the pool the search tasks run in.
+     */
+    public ParallelSetFinder(FeatureTable features, ForkJoinPool pool) {
+        this.features = features;
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor that uses the common fork-join pool (i.e. one worker per available core).
+     *
+     * @param features - the features of the cards in the deck.
+     */
+    public ParallelSetFinder(FeatureTable features) {
+        this(features, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds and returns up to count sets in the given cards.
+     *
+     * @param cards - an array of distinct card ids.
+     * @param count - the maximum number of sets to find.
+     * @return      - a list of up to count integer arrays, each one contains the (sorted) card ids of a legal set.
+     */
+    public List<int[]> findSets(int[] cards, int count) {
+        if (count <= 0 || cards.length < features.featureSize) return new ArrayList<>();
+
+        Search search = new Search(cards, count);
+        pool.invoke(new SearchTask(search, 0, cards.length - features.featureSize + 1));
+        return new ArrayList<>(search.sets);
+    }
+
+    /**
+     * The state shared by all the tasks of a single search.
+     */
+    private class Search {
+
+        final int[] cards;
+        final int count;
+
+        /**
+         * A bitmap of the cards searched (bit i is set iff card i is in the deck).
+         */
+        final long[] present;
+
+        /**
+         * The number of sets claimed by tasks so far (may exceed count, but only count sets are added).
+         */
+        final AtomicInteger found = new AtomicInteger();
+        final ConcurrentLinkedQueue<int[]> sets = new ConcurrentLinkedQueue<>();
+
+        Search(int[] cards, int count) {
+            this.cards = cards;
+            this.count = count;
+            present = new long[(features.deckSize + 63) / 64];
+            for (int card : cards)
+                present[card >>> 6] |= 1L << card;
+        }
+
+        boolean done() {
+            return found.get() >= count;
+        }
+
+        /**
+         * Adds a set to the results.
+         *
+         * @return - true iff the search should go on.
+         */
+        boolean add(int[] set) {
+            int index = found.getAndIncrement();
+            if (index < count) sets.add(set);
+            return index + 1 < count;
+        }
+    }
+
+    private class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+
+        /**
+         * The range [from, to) of the first indexes searched by this task.
+         */
+        private final int from, to;
+
+        SearchTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.done()) return;
+            if (to - from <= LEAF_SIZE) {
+                if (features.featureSize == 3) searchTriples();
+                else searchCombinations();
+                return;
+            }
+
+            // the first indexes have more candidates, so the lower half gets the smaller range
+            int middle = from + (to - from) * 3 / 10 + 1;
+            invokeAll(new SearchTask(search, from, middle), new SearchTask(search, middle, to));
+        }
+
+        /**
+         * Every pair has a single completing card, so sets are found in O(n) per first index. A set is reported
+         * only from the pair of its two smallest cards.
+         */
+        private void searchTriples() {
+            int[] cards = search.cards;
+            for (int i = from; i < to; ++i) {
+                if (search.done()) return;
+                int a = cards[i];
+                for (int j = i + 1; j < cards.length; ++j) {
+                    int b = cards[j];
+                    int c = features.completeSet(a, b);
+                    if (c > a && c > b && (search.present[c >>> 6] & 1L << c) != 0)
+                        if (!search.add(a < b ? new int[]{a, b, c} : new int[]{b, a, c})) return;
+                }
+            }
+        }
+
+        /**
+         * Tests every combination of featureSize cards that starts at an index in range.
+         */
+        private void searchCombinations() {
+            int[] cards = search.cards;
+            int n = cards.length;
+            int r = features.featureSize;
+            int[] combination = new int[r];
+            int[] set = new int[r];
+
+            for (int i = from; i < to; ++i) {
+                if (search.done()) return;
+                combination[0] = i;
+                for (int k = 1; k < r; ++k) combination[k] = i + k;
+
+                while (combination[r - 1] < n) {
+                    for (int k = 0; k < r; ++k) set[k] = cards[combination[k]];
+                    if (features.isSet(set)) {
+                        int[] found = set.clone();
+                        Arrays.sort(found);
+                        if (!search.add(found)) return;
+                    }
+
+                    // generate next combination with the same first index in lexicographic order
+                    int t = r - 1;
+                    while (t != 1 && combination[t] == n - r + t) --t;
+                    combination[t]++;
+                    for (int k = t + 1; k < r; k++) combination[k] = combination[k - 1] + 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package bguspl.set;
+
+import java.util.Arrays;
+
+/**
+ * A UserInterface implementation without a display (for headless games). It keeps the scores and the winners, and
+ * optionally records every call as an event of EVENT_SIZE ints: the event type and up to two arguments.
+ */
+public class RecordingUserInterface implements UserInterface {
+
+    /**
+     * The types of the recorded events (i.e. the UserInterface methods).
+     */
+    public enum EventType {
+        PLACE_CARD, REMOVE_CARD, COUNTDOWN, ELAPSED, SCORE, FREEZE, PLACE_TOKEN, REMOVE_TOKENS, REMOVE_SLOT_TOKENS,
+        REMOVE_TOKEN, ANNOUNCE_WINNER
+    }
+
+    /**
+     * The number of ints per recorded event.
+     */
+    public static final int EVENT_SIZE = 3;
+
+    private static final EventType[] eventTypes = EventType.values();
+
+    /**
+     * True iff the calls should be recorded (otherwise only the scores and winners are kept).
+     */
+    private final boolean recording;
+
+    /**
+     * The recorded events (EVENT_SIZE ints each).
+     */
+    private int[] events;
+    private int eventCount;
+
+    /**
+     * The last score set for each player.
+     */
+    private final int[] scores;
+
+    /**
+     * The winners announced (null if none were announced yet).
+     */
+    private int[] winners;
+
+    /**
+     * @param config    - the game configuration.
+     * @param recording - true iff the calls should be recorded.
+     */
+    public RecordingUserInterface(Config config, boolean recording) {
+        this.recording = recording;
+        scores = new int[config.players];
+        events = new int[recording ? EVENT_SIZE * 1024 : 0];
+    }
+
+    private synchronized void record(EventType type, int a, int b) {
+        if (!recording) return;
+        if ((eventCount + 1) * EVENT_SIZE > events.length)
+            events = Arrays.copyOf(events, events.length * 2);
+        int index = eventCount++ * EVENT_SIZE;
+        events[index] = type.ordinal();
+        events[index + 1] = a;
+        events[index + 2] = b;
+    }
+
+    private static int toInt(long millies) {
+        return (int) Math.min(millies, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return - the number of recorded events.
+     */
+    public synchronized int eventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @param index - the index of the event.
+     * @return      - the type of the event.
+     */
+    public synchronized EventType eventType(int index) {
+        return eventTypes[events[index * EVENT_SIZE]];
+    }
+
+    /**
+     * @param index    - the index of the event.
+     * @param argument - the index of the argument (0 or 1, in the order of the UserInterface method's parameters).
+     * @return         - the argument of the event (0 if the method has no such argument).
+     */
+    public synchronized int eventArgument(int index, int argument) {
+        return events[index * EVENT_SIZE + 1 + argument];
+    }
+
+    /**
+     * Removes all the recorded events.
+     */
+    public synchronized void clearEvents() {
+        eventCount = 0;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the last score set for the player.
+     */
+    public synchronized int getScore(int player) {
+        return scores[player];
+    }
+
+    /**
+     * @return - the ids of the winners announced (null if none were announced yet).
+     */
+    public synchronized int[] getWinners() {
+        return winners;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        record(EventType.PLACE_CARD, card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        record(EventType.REMOVE_CARD, slot, 0);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        record(EventType.COUNTDOWN, toInt(millies), warn ? 1 : 0);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        record(EventType.ELAPSED, toInt(millies), 0);
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        record(EventType.SCORE, player, score);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        record(EventType.FREEZE, player, toInt(millies));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        record(EventType.PLACE_TOKEN, player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        record(EventType.REMOVE_TOKENS, 0, 0);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        record(EventType.REMOVE_SLOT_TOKENS, slot, 0);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        record(EventType.REMOVE_TOKEN, player, slot);
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        winners = players.clone();
+        for (int player : players)
+            record(EventType.ANNOUNCE_WINNER, player, 0);
+    }
+}
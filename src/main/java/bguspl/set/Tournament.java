@@ -0,0 +1,219 @@
+package bguspl.set;
+
+import bguspl.set.ex.GameHost;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays many self-play games of computer players on all the processors (see GameHost), for every combination of a sweep
+ * of configuration properties, and reports per combination the number of games per second, the set-find latency
+ * distribution and the scores of every bot.
+ * The games start from the headless configuration (see Headless), so the swept properties are usually the freezes
+ * (PointFreezeSeconds, PenaltyFreezeSeconds), TurnTimeoutSeconds, ComputerPlayers and BotProfiles. Game i of every
+ * combination is played with the seed RandomSeed + i (RandomSeed defaults to 1), so the combinations are compared on
+ * the same decks.
+ */
+public class Tournament {
+
+    /**
+     * The tournament's main function.
+     *
+     * @param args - [the number of games per combination (default 100)] [the number of threads (default: the number of
+     *               processors)] [the configuration file (default config.properties)] [sweeps of the form
+     *               Property=value1,value2,... (e.g. PenaltyFreezeSeconds=0,1,3 ComputerPlayers=2,4), or with values
+     *               separated by ; when they contain commas (e.g. "BotProfiles=expert;expert,novice")].
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String configFilename = args.length > 2 ? args[2] : "config.properties";
+        Map<String, String[]> sweeps = new LinkedHashMap<>();
+        for (int i = 3; i < args.length; ++i) {
+            int equals = args[i].indexOf('=');
+            if (equals <= 0) throw new IllegalArgumentException("A sweep must be of the form Property=value1,value2,...");
+            String list = args[i].substring(equals + 1);
+            String[] values = list.split(list.indexOf(';') >= 0 ? ";" : ",");
+            for (int j = 0; j < values.length; ++j)
+                values[j] = values[j].trim();
+            sweeps.put(args[i].substring(0, equals).trim(), values);
+        }
+
+        Logger logger = Logger.getLogger("SetGameLogger.tournament");
+        logger.setLevel(Level.WARNING);
+        Properties properties = Headless.headlessProperties(Config.loadProperties(configFilename, logger));
+        if (properties.getProperty("RandomSeed", "").trim().isEmpty())
+            properties.setProperty("RandomSeed", "1");
+        if (new Config(logger, properties).metrics) Metrics.enable();
+
+        try (GameHost host = new GameHost(threads)) {
+            for (Properties combination : combinations(properties, sweeps)) {
+                Standings standings = play(host, logger, combination, games);
+                StringBuilder title = new StringBuilder();
+                for (String property : sweeps.keySet())
+                    title.append(title.length() == 0 ? "" : ", ").append(property).append('=')
+                            .append(combination.getProperty(property));
+                System.out.println("Info: " + (title.length() == 0 ? "Tournament" : title));
+                System.out.print(standings.report().replaceAll("(?m)^", "Info:   "));
+                logger.log(Level.INFO, title + System.lineSeparator() + standings.report());
+            }
+        }
+    }
+
+    /**
+     * Expands the sweeps into all their combinations.
+     *
+     * @param base   - the configuration properties all the combinations start from (not modified).
+     * @param sweeps - the values of every swept property.
+     * @return       - the configuration properties of every combination (the first property varies slowest).
+     */
+    static List<Properties> combinations(Properties base, Map<String, String[]> sweeps) {
+        List<Properties> combinations = new ArrayList<>();
+        combinations.add(base);
+        for (Map.Entry<String, String[]> sweep : sweeps.entrySet()) {
+            List<Properties> expanded = new ArrayList<>(combinations.size() * sweep.getValue().length);
+            for (Properties combination : combinations)
+                for (String value : sweep.getValue()) {
+                    Properties properties = new Properties();
+                    properties.putAll(combination);
+                    properties.setProperty(sweep.getKey(), value);
+                    expanded.add(properties);
+                }
+            combinations = expanded;
+        }
+        return combinations;
+    }
+
+    /**
+     * Plays the games of a combination on the host, as many at a time as the host has threads: a game is created and
+     * started when an earlier one is over, so the set-find latency of the bots is not spent waiting for the host.
+     *
+     * @param host       - the host of the games.
+     * @param logger     - the logger of the games.
+     * @param properties - the configuration properties of the combination (not modified).
+     * @param games      - the number of games to play.
+     * @return           - the standings of the bots in the games.
+     */
+    static Standings play(GameHost host, Logger logger, Properties properties, int games) {
+        Properties gameProperties = new Properties();
+        gameProperties.putAll(properties);
+        Config firstConfig = new Config(logger, gameProperties);
+        Util util = new UtilImpl(firstConfig);
+        Standings standings = new Standings(firstConfig);
+
+        Semaphore inFlight = new Semaphore(host.threads());
+        CompletableFuture<?>[] results = new CompletableFuture<?>[games];
+        long start = System.nanoTime();
+        for (int game = 0; game < games; ++game) {
+            gameProperties.setProperty("RandomSeed", Long.toString(firstConfig.randomSeed + game));
+            Config config = new Config(logger, gameProperties);
+            TournamentUserInterface ui = new TournamentUserInterface(config, standings);
+            GameHost.Game hosted = host.create(new Env(logger, config, ui, util));
+            inFlight.acquireUninterruptibly();
+            hosted.start();
+            results[game] = hosted.result().thenAccept(scores -> standings.add(scores, ui.getWinners()))
+                    .whenComplete((ignored, e) -> inFlight.release());
+        }
+        CompletableFuture.allOf(results).join();
+        standings.seconds = (System.nanoTime() - start) / 1e9;
+        return standings;
+    }
+
+    /**
+     * The results of the games of a combination: the scores and wins of every player (i.e. bot), and the time from the
+     * last change of the table until a player scored (the set-find latency, in microseconds).
+     */
+    static class Standings {
+
+        final Config config;
+        final long[] points;
+        final int[] wins;
+        final Histogram[] findLatency;
+        final Histogram totalFindLatency = new Histogram("us");
+        int games;
+        double seconds;
+
+        Standings(Config config) {
+            this.config = config;
+            points = new long[config.players];
+            wins = new int[config.players];
+            findLatency = new Histogram[config.players];
+            for (int player = 0; player < findLatency.length; ++player)
+                findLatency[player] = new Histogram("us");
+        }
+
+        synchronized void add(int[] scores, int[] winners) {
+            ++games;
+            for (int player = 0; player < scores.length; ++player)
+                points[player] += scores[player];
+            if (winners != null)
+                for (int winner : winners)
+                    ++wins[winner];
+        }
+
+        void recordFind(int player, long micros) {
+            findLatency[player].record(micros);
+            totalFindLatency.record(micros);
+        }
+
+        /**
+         * @return - the standings as a human readable report (one line per bot after a summary line).
+         */
+        synchronized String report() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d games of %d players in %.2f seconds (%.1f games/second), set-find latency %s%n",
+                    games, config.players, seconds, games / seconds, latency(totalFindLatency)));
+            for (int player = 0; player < config.players; ++player) {
+                String profile = player < config.humanPlayers ? "human"
+                        : config.botProfiles[(player - config.humanPlayers) % config.botProfiles.length];
+                sb.append(String.format("%-10s %-16s score %6.2f, wins %5.1f%%, set-find latency %s%n",
+                        config.playerNames[player], profile, (double) points[player] / games,
+                        100.0 * wins[player] / games, latency(findLatency[player])));
+            }
+            return sb.toString();
+        }
+
+        private static String latency(Histogram histogram) {
+            return String.format("p50 %.1fms p90 %.1fms p99 %.1fms max %.1fms", histogram.getP50() / 1000.0,
+                    histogram.getP90() / 1000.0, histogram.getP99() / 1000.0, histogram.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * A user interface that records the set-find latency of the points it displays in the standings.
+     */
+    private static class TournamentUserInterface extends RecordingUserInterface {
+
+        private final Standings standings;
+
+        /**
+         * The time the table last changed (in System.nanoTime units).
+         */
+        private volatile long tableChanged = System.nanoTime();
+
+        TournamentUserInterface(Config config, Standings standings) {
+            super(config, false);
+            this.standings = standings;
+        }
+
+        @Override
+        public void placeCard(int card, int slot) {
+            tableChanged = System.nanoTime();
+            super.placeCard(card, slot);
+        }
+
+        @Override
+        public synchronized void setScore(int player, int score) {
+            if (score > getScore(player))
+                standings.recordFind(player, (System.nanoTime() - tableChanged) / 1000);
+            super.setScore(player, score);
+        }
+    }
+}
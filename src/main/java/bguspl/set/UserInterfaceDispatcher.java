@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * A UserInterface that forwards the calls of the game threads to a Swing user interface on the event dispatch thread,
+ * at most once per frame (FRAME_MILLIS). The calls are coalesced: the dispatcher keeps the state that the calls lead
+ * to (the card in each slot, the tokens, the scores...) and every frame forwards only what changed since the previous
+ * frame. The game threads never block on Swing: a call only updates the state under a short lock.
+ */
+public class UserInterfaceDispatcher implements UserInterface {
+
+    /**
+     * The minimal time between two frames (i.e. about 60 frames per second).
+     */
+    static final long FRAME_MILLIS = 16;
+
+    private static final int NO_CARD = -1;
+
+    /**
+     * The user interface the calls are forwarded to (on the event dispatch thread).
+     */
+    private final UserInterface target;
+
+    /**
+     * The state the calls lead to, guarded by this. The dirty flags mark what changed since the last frame.
+     */
+    private final int[] cards;
+    private final boolean[] dirtyCards;
+    private final boolean[][] tokens;
+    private final boolean[] dirtyTokens;
+    private final int[] scores;
+    private final long[] freezes;
+    private final boolean[] dirtyPlayers;
+    private long timerMillies;
+    private boolean timerWarn;
+    private boolean timerElapsed;
+    private boolean dirtyTimer;
+    private int[] winners;
+    private boolean frameScheduled;
+
+    /**
+     * The state of the current frame, copied under the lock and forwarded outside it (event dispatch thread only).
+     */
+    private final int[] frameCards;
+    private final boolean[] frameCardSlots;
+    private final boolean[][] frameTokens;
+    private final boolean[] frameTokenSlots;
+    private final int[] frameScores;
+    private final long[] frameFreezes;
+    private final boolean[] framePlayers;
+
+    /**
+     * The state that was forwarded to the target (event dispatch thread only).
+     */
+    private final int[] shownCards;
+    private final boolean[][] shownTokens;
+    private final int[] shownScores;
+    private final long[] shownFreezes;
+
+    /**
+     * Delays a frame that comes too soon after the previous one, and the time of the previous frame.
+     */
+    private final Timer frameTimer;
+    private long lastFrame;
+
+    /**
+     * @param target - the user interface the calls are forwarded to.
+     * @param config - the game configuration.
+     */
+    public UserInterfaceDispatcher(UserInterface target, Config config) {
+        this.target = target;
+        cards = new int[config.tableSize];
+        frameCards = new int[config.tableSize];
+        shownCards = new int[config.tableSize];
+        Arrays.fill(cards, NO_CARD);
+        Arrays.fill(shownCards, NO_CARD);
+        dirtyCards = new boolean[config.tableSize];
+        frameCardSlots = new boolean[config.tableSize];
+
+        tokens = new boolean[config.players][config.tableSize];
+        frameTokens = new boolean[config.players][config.tableSize];
+        shownTokens = new boolean[config.players][config.tableSize];
+        dirtyTokens = new boolean[config.tableSize];
+        frameTokenSlots = new boolean[config.tableSize];
+
+        scores = new int[config.players];
+        frameScores = new int[config.players];
+        shownScores = new int[config.players];
+        freezes = new long[config.players];
+        frameFreezes = new long[config.players];
+        shownFreezes = new long[config.players];
+        dirtyPlayers = new boolean[config.players];
+        framePlayers = new boolean[config.players];
+
+        frameTimer = new Timer(0, event -> flush());
+        frameTimer.setRepeats(false);
+    }
+
+    /**
+     * Schedules a frame on the event dispatch thread, unless one is already scheduled (called under the lock).
+     */
+    private void scheduleFrame() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        EventQueue.invokeLater(this::frame);
+    }
+
+    /**
+     * Flushes the changes now, or once FRAME_MILLIS passed since the previous frame (event dispatch thread only).
+     */
+    private void frame() {
+        long wait = lastFrame + FRAME_MILLIS - System.currentTimeMillis();
+        if (wait > 0) {
+            frameTimer.setInitialDelay((int) wait);
+            frameTimer.restart();
+        } else flush();
+    }
+
+    /**
+     * Forwards the changes since the previous frame to the target (event dispatch thread only).
+     */
+    void flush() {
+        lastFrame = System.currentTimeMillis();
+        boolean timer;
+        long millies;
+        boolean warn;
+        boolean elapsed;
+        int[] announced;
+        synchronized (this) {
+            frameScheduled = false;
+            for (int slot = 0; slot < cards.length; ++slot) {
+                if (frameCardSlots[slot] = dirtyCards[slot])
+                    frameCards[slot] = cards[slot];
+                if (frameTokenSlots[slot] = dirtyTokens[slot])
+                    for (int player = 0; player < tokens.length; ++player)
+                        frameTokens[player][slot] = tokens[player][slot];
+                dirtyCards[slot] = dirtyTokens[slot] = false;
+            }
+            for (int player = 0; player < scores.length; ++player) {
+                framePlayers[player] = dirtyPlayers[player];
+                frameScores[player] = scores[player];
+                frameFreezes[player] = freezes[player];
+                dirtyPlayers[player] = false;
+            }
+            timer = dirtyTimer;
+            millies = timerMillies;
+            warn = timerWarn;
+            elapsed = timerElapsed;
+            dirtyTimer = false;
+            announced = winners;
+            winners = null;
+        }
+
+        for (int slot = 0; slot < shownCards.length; ++slot) {
+            if (!frameCardSlots[slot] || frameCards[slot] == shownCards[slot]) continue;
+            shownCards[slot] = frameCards[slot];
+            if (frameCards[slot] == NO_CARD) target.removeCard(slot);
+            else target.placeCard(frameCards[slot], slot);
+        }
+        for (int slot = 0; slot < shownCards.length; ++slot) {
+            if (!frameTokenSlots[slot]) continue;
+            for (int player = 0; player < shownTokens.length; ++player) {
+                boolean token = frameTokens[player][slot];
+                if (token == shownTokens[player][slot]) continue;
+                shownTokens[player][slot] = token;
+                if (token) target.placeToken(player, slot);
+                else target.removeToken(player, slot);
+            }
+        }
+        for (int player = 0; player < shownScores.length; ++player) {
+            if (!framePlayers[player]) continue;
+            if (frameScores[player] != shownScores[player])
+                target.setScore(player, shownScores[player] = frameScores[player]);
+            if (frameFreezes[player] != shownFreezes[player])
+                target.setFreeze(player, shownFreezes[player] = frameFreezes[player]);
+        }
+        if (timer) {
+            if (elapsed) target.setElapsed(millies);
+            else target.setCountdown(millies, warn);
+        }
+        if (announced != null)
+            target.announceWinner(announced);
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        cards[slot] = card;
+        dirtyCards[slot] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        cards[slot] = NO_CARD;
+        dirtyCards[slot] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        timerMillies = millies;
+        timerWarn = warn;
+        timerElapsed = false;
+        dirtyTimer = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        timerMillies = millies;
+        timerElapsed = true;
+        dirtyTimer = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        dirtyPlayers[player] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        freezes[player] = Math.max(millies, 0);
+        dirtyPlayers[player] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        tokens[player][slot] = true;
+        dirtyTokens[slot] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        for (int slot = 0; slot < dirtyTokens.length; ++slot)
+            removeTokens(slot);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        for (boolean[] playerTokens : tokens)
+            playerTokens[slot] = false;
+        dirtyTokens[slot] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        tokens[player][slot] = false;
+        dirtyTokens[slot] = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        winners = players.clone();
+        scheduleFrame();
+    }
+}
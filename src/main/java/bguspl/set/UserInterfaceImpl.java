@@ -2,8 +2,6 @@ package bguspl.set;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -11,7 +9,8 @@ import java.util.logging.Logger;
 import static java.lang.String.format;
 
 /**
- * Java Swing implementation of the UserInterface interface.
+ * Java Swing implementation of the UserInterface interface. Its methods must be called on the event dispatch thread
+ * (the game threads call it through a UserInterfaceDispatcher).
  */
 public class UserInterfaceImpl extends JFrame implements UserInterface {
 
@@ -22,6 +21,11 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
     private final Logger logger;
     private final Config config;
 
+    /**
+     * The time the window was created, to report the time to the first deal.
+     */
+    private final long creationTime = System.currentTimeMillis();
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
@@ -96,39 +100,26 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
+        private final CardAtlas atlas;
+        private final int[][] grid;
         private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
-
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        private boolean dealt;
 
         private GamePanel() {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            // the card images (loaded in parallel, or when placed for large decks) are shared by all the windows
+            atlas = CardAtlas.of(config);
 
-            grid = new Image[config.rows][config.columns];
+            grid = new int[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
             playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = CardAtlas.EMPTY_CARD;
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -143,25 +134,35 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void placeCard(int slot, int card) {
-            logger.log(Level.SEVERE, "placing card " + card + " in slot " + slot);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "placing card {0} in slot {1}", new Object[]{card, slot});
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = card;
+            atlas.load(card, () -> repaintCell(row, column)); // the cell shows the empty card until it is loaded
+            repaintCell(row, column);
+            if (!dealt) {
+                dealt = true;
+                long time = System.currentTimeMillis() - creationTime;
+                System.out.printf("Info: First card placed %d ms after the window was created, card images use %d KB "
+                        + "of heap.%n", time, atlas.heapBytes() / 1024);
+                logger.log(Level.INFO, "First card placed {0} ms after the window was created, {1} card images use "
+                        + "{2} KB of heap.", new Object[]{time, atlas.loadedCards(), atlas.heapBytes() / 1024});
+            }
         }
 
         private void removeCard(int slot) {
-            logger.log(Level.SEVERE, "removing card from slot " + slot);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "removing card from slot {0}", slot);
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            grid[row][column] = CardAtlas.EMPTY_CARD;
+            repaintCell(row, column);
         }
 
         private void placeToken(int player, int slot) {
-            logger.log(Level.SEVERE, "player " + player + " placing token on slot " + slot);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "player {0} placing token on slot {1}", new Object[]{player, slot});
             int row = slot / config.columns;
             int column = slot % config.columns;
             playerTokens[player][row][column] = true;
@@ -169,13 +170,14 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void removeTokens() {
-            logger.log(Level.SEVERE, "removing all tokens");
+            logger.log(Level.FINE, "removing all tokens");
             for (int i = 0; i < config.tableSize; i++)
                 removeTokens(i);
         }
 
         private void removeTokens(int slot) {
-            logger.log(Level.SEVERE, "removing tokens from slot " + slot);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "removing tokens from slot {0}", slot);
             int row = slot / config.columns;
             int column = slot % config.columns;
             for (int player = 0; player < playerTokens.length; player++) {
@@ -185,7 +187,8 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void removeToken(int player, int slot) {
-            logger.log(Level.SEVERE, "removing player " + player + " token from slot " + slot);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "removing player {0} token from slot {1}", new Object[]{player, slot});
             int row = slot / config.columns;
             int column = slot % config.columns;
             playerTokens[player][row][column] = false;
@@ -203,13 +206,28 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
             return text.substring(0, text.length() - 2);
         }
 
+        /**
+         * Repaints the cell of a slot only (i.e. its rectangle is marked dirty).
+         */
+        private void repaintCell(int row, int column) {
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+        }
+
         @Override
         public void paintComponent(Graphics g) {
 
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw the card images of the cells in the dirty region only
+            Rectangle clip = g.getClipBounds();
+            int firstRow = 0, lastRow = config.rows - 1, firstColumn = 0, lastColumn = config.columns - 1;
+            if (clip != null) {
+                firstRow = Math.max(firstRow, clip.y / config.cellHeight);
+                lastRow = Math.min(lastRow, (clip.y + clip.height - 1) / config.cellHeight);
+                firstColumn = Math.max(firstColumn, clip.x / config.cellWidth);
+                lastColumn = Math.min(lastColumn, (clip.x + clip.width - 1) / config.cellWidth);
+            }
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++)
+                    atlas.draw(g, grid[row][column], (column * config.cellWidth), (row * config.cellHeight));
         }
     }
 
@@ -237,12 +255,14 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void setScore(int player, int score) {
-            logger.log(Level.SEVERE, "setting player " + player + " score to " + score);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "setting player {0} score to {1}", new Object[]{player, score});
             playersTable[1][player].setText(Integer.toString(score));
         }
 
         private void setFreeze(int player, long millies) {
-            logger.log(Level.SEVERE, "setting player " + player + " freeze to " + millies);
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "setting player {0} freeze to {1}", new Object[]{player, millies});
             if (millies > 0) {
                 this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
@@ -268,7 +288,8 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void announceWinner(int[] players) {
-            logger.log(Level.SEVERE, "announcing winners: " + Arrays.toString(players));
+            if (logger.isLoggable(Level.INFO))
+                logger.log(Level.INFO, "announcing winners: {0}", Arrays.toString(players));
             if (players.length == 1)
                 winnerAnnouncement.setText("THE WINNER IS: " + config.playerNames[players[0]] + "!!!");
             else {
@@ -3,68 +3,73 @@ package bguspl.set;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.IntStream;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
+    /**
+     * Decks of at least this many cards are searched in parallel (i.e. 5 features of size 3 or more).
+     */
+    private static final int PARALLEL_DECK_SIZE = 243;
+
     private final Config config;
 
+    /**
+     * The features of the cards in the configured deck.
+     */
+    private final FeatureTable features;
+
+    /**
+     * Per thread scratch buffers used by findSets (so searching does not allocate per call).
+     */
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * The solver used for large decks.
+     */
+    private final ParallelSetFinder parallelFinder;
+
     public UtilImpl(Config config) {
         this.config = config;
-    }
-
-    private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        features = FeatureTable.of(config);
+        scratch = ThreadLocal.withInitial(() -> new Scratch(config.deckSize));
+        parallelFinder = new ParallelSetFinder(features);
     }
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        return features.features(card).clone(); // the rows of the table are shared by every game in the JVM
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
-        return features;
+        int[][] result = new int[cards.length][];
+        for (int i = 0; i < cards.length; ++i)
+            result[i] = features.features(cards[i]).clone();
+        return result;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
-        for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
-
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
-                        butDifferent = false;
-                        break;
-                    }
+        return features.isSet(cards);
+    }
 
-            if (sameSame == butDifferent) return false;
-        }
-        return true;
+    /**
+     * Computes the only card that completes the two given cards to a legal set (see FeatureTable.completeSet).
+     */
+    public int completeSet(int a, int b) {
+        return features.completeSet(a, b);
     }
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        if (deck.size() >= PARALLEL_DECK_SIZE)
+            return parallelFinder.findSets(deck.stream().mapToInt(Integer::intValue).toArray(), count);
+        if (config.featureSize == 3)
+            return findTriples(deck, count);
+
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
@@ -88,4 +93,60 @@ public class UtilImpl implements Util {
         }
         return sets;
     }
+
+    /**
+     * Finds sets of three cards in O(n^2): every pair of cards has exactly one completing card, so a pair is
+     * a part of a set iff its completing card is in the deck. To report each set once, a set is reported only from
+     * the pair of its two smallest cards.
+     */
+    private List<int[]> findTriples(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        if (count <= 0) return sets;
+
+        Scratch s = scratch.get();
+        int n = 0;
+        for (int card : deck) {
+            s.cards[n++] = card;
+            s.present[card >>> 6] |= 1L << card;
+        }
+
+        try {
+            for (int i = 0; i < n - 1; ++i) {
+                int a = s.cards[i];
+                for (int j = i + 1; j < n; ++j) {
+                    int b = s.cards[j];
+                    int c = completeSet(a, b);
+                    if (c > a && c > b && (s.present[c >>> 6] & 1L << c) != 0) {
+                        sets.add(a < b ? new int[]{a, b, c} : new int[]{b, a, c});
+                        if (sets.size() >= count) return sets;
+                    }
+                }
+            }
+            return sets;
+        } finally {
+            for (int i = 0; i < n; ++i)
+                s.present[s.cards[i] >>> 6] = 0;
+        }
+    }
+
+    /**
+     * Reusable buffers for a single searching thread.
+     */
+    private static class Scratch {
+
+        /**
+         * The cards being searched.
+         */
+        final int[] cards;
+
+        /**
+         * A bitmap of the cards being searched (bit i is set iff card i is in the deck).
+         */
+        final long[] present;
+
+        Scratch(int deckSize) {
+            cards = new int[deckSize];
+            present = new long[(deckSize + 63) / 64];
+        }
+    }
 }
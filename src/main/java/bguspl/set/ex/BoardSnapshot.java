@@ -0,0 +1,115 @@
+package bguspl.set.ex;
+
+/**
+ * An immutable view of the board: the card in every slot and the tokens of every player, as they were at some point
+ * of the game. The table versions every change of its cards or tokens, and the first read after a change publishes a
+ * new board (see Table.getBoard), so a reader gets a consistent board without locking, and can skip recomputing what
+ * it derived from a board as long as the version of the current board is the same.
+ */
+public final class BoardSnapshot {
+
+    /**
+     * The version of the board, increasing with every change of the table.
+     */
+    private final long version;
+
+    /**
+     * The number of changes of the cards up to the board (a board with the same cards version has the same cards).
+     */
+    private final long cardsVersion;
+
+    /**
+     * The card in every slot (Table.EMPTY if none).
+     */
+    private final int[] slotToCard;
+
+    /**
+     * The slots of every player's tokens, as bitmasks (bit i for slot i).
+     */
+    private final long[] playerTokens;
+
+    /**
+     * @param version      - the version of the board.
+     * @param cardsVersion - the number of changes of the cards up to the board.
+     * @param slotToCard   - the card in every slot (owned by the board from now on).
+     * @param playerTokens - the token masks of the players (owned by the board from now on).
+     */
+    BoardSnapshot(long version, long cardsVersion, int[] slotToCard, long[] playerTokens) {
+        this.version = version;
+        this.cardsVersion = cardsVersion;
+        this.slotToCard = slotToCard;
+        this.playerTokens = playerTokens;
+    }
+
+    /**
+     * @return - the version of the board: a later board has a greater version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return - the version of the cards on the board: it changes only when a card is placed or removed (and not when a
+     *           token is), so what is derived from the cards alone can be kept while it is the same.
+     */
+    public long getCardsVersion() {
+        return cardsVersion;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return     - the card in the slot, or Table.EMPTY if the slot is empty.
+     */
+    public int getCardInSlot(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - the slot the card is in, or Table.EMPTY if the card is not on the board.
+     */
+    public int getSlotOfCard(int card) {
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            if (slotToCard[slot] == card) return slot;
+        return Table.EMPTY;
+    }
+
+    /**
+     * @return - a copy of the card in every slot (Table.EMPTY if none).
+     */
+    public int[] getSlotToCard() {
+        return slotToCard.clone();
+    }
+
+    /**
+     * @return - the number of cards on the board.
+     */
+    public int countCards() {
+        int cards = 0;
+        for (int card : slotToCard)
+            if (card != Table.EMPTY) ++cards;
+        return cards;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the slots on which the player has tokens, as a bitmask (bit i for slot i).
+     */
+    public long getPlayerTokenMask(int player) {
+        return playerTokens[player];
+    }
+
+    /**
+     * @return - the slots on which every player has tokens (in ascending order).
+     */
+    public int[][] getTokens() {
+        int[][] tokens = new int[playerTokens.length][];
+        for (int player = 0; player < tokens.length; ++player) {
+            long mask = playerTokens[player];
+            tokens[player] = new int[Long.bitCount(mask)];
+            for (int i = 0; mask != 0; mask &= mask - 1)
+                tokens[player][i++] = Long.numberOfTrailingZeros(mask);
+        }
+        return tokens;
+    }
+}
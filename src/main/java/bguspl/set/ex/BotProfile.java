@@ -0,0 +1,62 @@
+package bguspl.set.ex;
+
+/**
+ * The reaction times and the accuracy of a computer player. A bot thinks for about thinkMillis before it starts
+ * pressing the keys of a set, presses a key about every keyMillis, and with probability mistakeRate presses the keys
+ * of random cards instead of a legal set. The actual delays are uniform between half and one and a half the means.
+ * The random profile is the original AI: it presses random keys as fast as the player accepts them.
+ */
+final class BotProfile {
+
+    /**
+     * The name of the profile (or its specification, for a custom profile).
+     */
+    final String name;
+
+    final long thinkMillis;
+    final long keyMillis;
+    final double mistakeRate;
+
+    /**
+     * True iff the bot presses random keys (and ignores the other fields).
+     */
+    final boolean random;
+
+    private BotProfile(String name, long thinkMillis, long keyMillis, double mistakeRate, boolean random) {
+        this.name = name;
+        this.thinkMillis = thinkMillis;
+        this.keyMillis = keyMillis;
+        this.mistakeRate = mistakeRate;
+        this.random = random;
+    }
+
+    /**
+     * Parses a profile: one of random, novice, average, expert and instant, or a custom profile specified as
+     * thinkMillis:keyMillis:mistakeRate (e.g. 1500:200:0.05).
+     *
+     * @param spec - the profile name or specification.
+     * @return     - the profile.
+     * @throws IllegalArgumentException - if the profile is unknown or its specification is malformed.
+     */
+    static BotProfile parse(String spec) {
+        switch (spec.trim().toLowerCase()) {
+            case "random": return new BotProfile("random", 0, 0, 1, true);
+            case "novice": return new BotProfile("novice", 4000, 400, 0.2, false);
+            case "average": return new BotProfile("average", 2000, 250, 0.1, false);
+            case "expert": return new BotProfile("expert", 800, 120, 0.02, false);
+            case "instant": return new BotProfile("instant", 0, 0, 0, false);
+            default:
+        }
+        String[] fields = spec.trim().split(":");
+        try {
+            if (fields.length == 3) {
+                long thinkMillis = Long.parseLong(fields[0].trim());
+                long keyMillis = Long.parseLong(fields[1].trim());
+                double mistakeRate = Double.parseDouble(fields[2].trim());
+                if (thinkMillis >= 0 && keyMillis >= 0 && mistakeRate >= 0 && mistakeRate <= 1)
+                    return new BotProfile(spec.trim(), thinkMillis, keyMillis, mistakeRate, false);
+            }
+        } catch (NumberFormatException ignored) {}
+        throw new IllegalArgumentException("Unknown bot profile: " + spec);
+    }
+}
@@ -0,0 +1,259 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+
+/**
+ * Drives all the computer players of a game from a single thread (or a single task of a GameHost), instead of a thread
+ * per computer player. The bots read the legal sets from the table, whose SetIndex is updated incrementally as cards
+ * come and go, so no bot ever scans the table. Every bot has its own profile (see BotProfile), assigned from
+ * config.botProfiles in turn.
+ */
+class BotService implements Runnable {
+
+    /**
+     * The number of sets a bot chooses from (so the bots do not all go for the same set).
+     */
+    private static final int SET_CHOICES = 8;
+
+    /**
+     * The time a bot waits before it looks for a set again, when there is no set on the table.
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final Table table;
+    private final Bot[] bots;
+
+    /**
+     * Wakes the service when a bot's player accepts key presses again, or the game is terminated.
+     */
+    private final WakeupSignal wakeup = new WakeupSignal();
+
+    /**
+     * The bot that acts first in the next step (rotated, so no bot is always the first to press its keys).
+     */
+    private int first;
+
+    /**
+     * True iff game should be terminated due to an external event.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The class constructor.
+     *
+     * @param env     - the environment object.
+     * @param table   - the table object.
+     * @param players - the players of the game (the computer players become bots).
+     * @throws IllegalArgumentException - if a bot profile in the configuration is unknown.
+     */
+    BotService(Env env, Table table, Player[] players) {
+        this.env = env;
+        this.table = table;
+        int count = 0;
+        for (Player player : players)
+            if (!player.isHuman()) ++count;
+        bots = new Bot[count];
+        count = 0;
+        for (Player player : players) {
+            if (player.isHuman()) continue;
+            BotProfile profile = BotProfile.parse(env.config.botProfiles[count % env.config.botProfiles.length]);
+            bots[count++] = new Bot(player, profile, new SplittableRandom(env.config.randomSeed + player.id + 1),
+                    env.config.featureSize);
+            player.setBotWakeup(wakeup);
+        }
+    }
+
+    /**
+     * @return - true iff the game has no computer players.
+     */
+    boolean isEmpty() {
+        return bots.length == 0;
+    }
+
+    /**
+     * The bots thread starts here: steps the bots until the game is terminated.
+     */
+    @Override
+    public void run() {
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        for (long deadline = step(); deadline != Dealer.GAME_OVER; deadline = step())
+            wakeup.await(deadline);
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Lets every bot do what it has to do now.
+     *
+     * @return - the time when step should be called again (0 if right away, Long.MAX_VALUE if only on wake up), or
+     *           Dealer.GAME_OVER if the game was terminated.
+     */
+    long step() {
+        if (terminate) return Dealer.GAME_OVER;
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < bots.length; ++i)
+            next = Math.min(next, act(bots[(first + i) % bots.length], now));
+        first = first + 1 < bots.length ? first + 1 : 0;
+        return next;
+    }
+
+    /**
+     * Presses the next key of a bot if it is due, after planning the keys of a set if the bot has no plan.
+     *
+     * @param bot - the bot.
+     * @param now - the current time.
+     * @return    - the time the bot should act again (Long.MAX_VALUE if only when its player accepts keys again).
+     */
+    private long act(Bot bot, long now) {
+        Player player = bot.player;
+        if (!player.acceptsKeys()) {
+            bot.planLength = 0;
+            return Long.MAX_VALUE;
+        }
+        if (bot.profile.random) // note: this is a very very smart AI (!)
+            return player.offerKey(bot.random.nextInt(env.config.tableSize)) ? 0 : Long.MAX_VALUE;
+
+        if (bot.next >= bot.planLength) {
+            long retry = plan(bot, now);
+            if (bot.next >= bot.planLength) return retry; // no plan
+        }
+        if (now < bot.due) return bot.due;
+
+        int slot = bot.planSlots[bot.next];
+        if (table.getSlotVersion(slot) != bot.planVersions[bot.next]) { // the set was taken, look for another one
+            bot.planLength = 0;
+            return 0;
+        }
+        if (!player.offerKey(slot)) return Long.MAX_VALUE; // the queue is full, the player wakes the bots
+        ++bot.next;
+        bot.due = now + delay(bot, bot.profile.keyMillis);
+        return bot.next < bot.planLength ? bot.due : Long.MAX_VALUE;
+    }
+
+    /**
+     * Plans the keys a bot presses: the keys of a legal set on the table (or of random cards, by mistake), after the
+     * keys that remove the player's tokens from other cards.
+     *
+     * @param bot - the bot.
+     * @param now - the current time.
+     * @return    - if no plan was made, the time to plan again: now + RETRY_MILLIS if there is nothing to claim on the
+     *              table (or no key to press), 0 if the cards changed while planning.
+     */
+    private long plan(Bot bot, long now) {
+        BoardSnapshot board = table.getBoard();
+        if (board.getCardsVersion() == bot.deadVersion) return now + RETRY_MILLIS; // the cards did not change since
+        int featureSize = env.config.featureSize;
+        int[] target = new int[featureSize];
+        if (bot.random.nextDouble() < bot.profile.mistakeRate) {
+            for (int i = 0; i < featureSize; ++i) {
+                boolean drawn;
+                do {
+                    target[i] = bot.random.nextInt(env.config.tableSize);
+                    drawn = false;
+                    for (int j = 0; j < i; ++j)
+                        drawn |= target[j] == target[i];
+                } while (drawn);
+            }
+        } else {
+            // the set index is updated before the board with the new cards is published (it is never older)
+            List<int[]> sets = table.getSets(SET_CHOICES);
+            if (sets.isEmpty()) {
+                bot.deadVersion = board.getCardsVersion();
+                return now + RETRY_MILLIS;
+            }
+            int[] set = sets.get(bot.random.nextInt(sets.size()));
+            for (int i = 0; i < featureSize; ++i) {
+                int slot = board.getSlotOfCard(set[i]);
+                if (slot == Table.EMPTY) return 0; // the card was just dealt, its board is about to be published
+                target[i] = slot;
+            }
+        }
+
+        long targetMask = 0;
+        for (int slot : target)
+            targetMask |= 1L << slot;
+        long tokens = board.getPlayerTokenMask(bot.player.id);
+        int length = 0;
+        for (long keys = tokens & ~targetMask; keys != 0; keys &= keys - 1)
+            length = addKey(bot, length, Long.numberOfTrailingZeros(keys));
+        for (long keys = targetMask & ~tokens; keys != 0; keys &= keys - 1)
+            length = addKey(bot, length, Long.numberOfTrailingZeros(keys));
+        if (length == 0) return now + RETRY_MILLIS;
+
+        bot.planLength = length;
+        bot.next = 0;
+        bot.due = now + delay(bot, bot.profile.thinkMillis);
+        return 0;
+    }
+
+    /**
+     * Adds the key of a slot to the plan of a bot (unless the slot is empty).
+     *
+     * @return - the length of the plan.
+     */
+    private int addKey(Bot bot, int length, int slot) {
+        int version = table.getSlotVersion(slot);
+        if (table.getCardInSlot(slot) == Table.EMPTY) return length;
+        bot.planSlots[length] = slot;
+        bot.planVersions[length] = version;
+        return length + 1;
+    }
+
+    /**
+     * @return - a random delay between half and one and a half of the mean.
+     */
+    private static long delay(Bot bot, long mean) {
+        return mean == 0 ? 0 : mean / 2 + bot.random.nextLong(mean);
+    }
+
+    /**
+     * Called when the game should be terminated due to an external event.
+     */
+    void terminate() {
+        terminate = true;
+        wakeup.signal();
+    }
+
+    /**
+     * @return - the signal that wakes the service (a GameHost steps the service when it is signaled).
+     */
+    WakeupSignal wakeup() {
+        return wakeup;
+    }
+
+    /**
+     * A computer player and its plan: the slots to press (and their versions when planned), the next one to press and
+     * when.
+     */
+    private static final class Bot {
+        final Player player;
+        final BotProfile profile;
+        final SplittableRandom random;
+        final int[] planSlots;
+        final int[] planVersions;
+        int planLength;
+        long deadVersion = -1; // the cards version of the last board the bot found no set on
+        int next;
+        long due;
+
+        Bot(Player player, BotProfile profile, SplittableRandom random, int featureSize) {
+            this.player = player;
+            this.profile = profile;
+            this.random = random;
+            // the player's tokens on other cards (featureSize - 1 at most) are removed before the set is pressed
+            planSlots = new int[2 * featureSize];
+            planVersions = new int[planSlots.length];
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free multi-producer single-consumer queue of set claims. Players push claims onto a stack with a single CAS,
+ * and the dealer takes all the pending claims at once with a single swap and handles them as a batch, oldest first.
+ */
+class ClaimQueue {
+
+    /**
+     * A set claimed by a player.
+     */
+    static final class Claim {
+
+        /**
+         * The id of the player who claimed the set.
+         */
+        final int player;
+
+        /**
+         * The slots of the claimed cards.
+         */
+        final int[] slots;
+
+        /**
+         * The cards in the slots, as the player saw them when claiming.
+         */
+        final int[] cards;
+
+        /**
+         * The versions of the slots when the player's tokens were placed on them (see Table.getSlotVersion).
+         */
+        final int[] versions;
+
+        /**
+         * The time of the claim (in System.nanoTime units).
+         */
+        final long timestamp;
+
+        /**
+         * The next claim in the stack (older) or in the batch (newer).
+         */
+        private Claim next;
+
+        Claim(int player, int[] slots, int[] cards, int[] versions, long timestamp) {
+            this.player = player;
+            this.slots = slots;
+            this.cards = cards;
+            this.versions = versions;
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * @return - the next (newer) claim in the batch, or null if this is the last one.
+         */
+        Claim next() {
+            return next;
+        }
+    }
+
+    /**
+     * The most recent pending claim (the pending claims are linked from newest to oldest).
+     */
+    private final AtomicReference<Claim> head = new AtomicReference<>();
+
+    /**
+     * Publishes a claim. Safe to call from any number of threads.
+     *
+     * @param claim - the claim to publish.
+     */
+    void offer(Claim claim) {
+        Claim top;
+        do {
+            top = head.get();
+            claim.next = top;
+        } while (!head.compareAndSet(top, claim));
+    }
+
+    /**
+     * Takes all the pending claims. Must be called by a single consumer thread.
+     *
+     * @return - the oldest pending claim (follow next() for the newer ones), or null if there are none.
+     */
+    Claim drain() {
+        Claim claim = head.getAndSet(null);
+
+        // reverse the stack so the batch is in the order the claims were published
+        Claim oldest = null;
+        while (claim != null) {
+            Claim older = claim.next;
+            claim.next = oldest;
+            oldest = claim;
+            claim = older;
+        }
+        return oldest;
+    }
+
+    /**
+     * @return - true iff there are no pending claims.
+     */
+    boolean isEmpty() {
+        return head.get() == null;
+    }
+}
@@ -1,19 +1,17 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.FeatureTable;
+import bguspl.set.Metrics;
 
-import java.io.InterruptedIOException;
-import java.lang.ProcessBuilder.Redirect.Type;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.Semaphore;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.SplittableRandom;
 import java.util.logging.Level;
 
-import javax.naming.InterruptedNamingException;
-
 /**
  * This class manages the dealer's threads and data
  */
@@ -31,35 +29,161 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
+     */
+    private final Deck deck;
+
+    /**
+     * The source of randomness of the game (seeded by config.randomSeed, so games can be reproduced).
      */
-    private final List<Integer> deck;
+    private final SplittableRandom random;
+
+    /**
+     * Scratch buffer of slots to fill or clear, in the (random) order they are handled.
+     */
+    private final int[] slotOrder;
+
+    /**
+     * The legal sets among the cards still in the game (i.e. in the deck or on the table). Cards only leave the game
+     * when they are discarded, so the index is updated on discards only and the game is over when it is empty.
+     */
+    private final SetIndex remainingSets;
 
     /**
      * True iff game should be terminated due to an external event.
      */
     private volatile boolean terminate;
 
+    /**
+     * The value returned by step (and by the players' act) when the game is over.
+     */
+    static final long GAME_OVER = -1;
+
+    /**
+     * True iff the next step starts a turn (i.e. deals the cards), false while the turn is played.
+     */
+    private boolean dealing = true;
+
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
-    private long milliseconds;
+    /**
+     * The time of the last reshuffle or legal set (i.e. the start of the current turn).
+     */
+    private long turnStartTime;
 
-    private final long MINUTE = 5000;
+    /**
+     * The time when the timer display should be updated next.
+     */
+    private long nextDisplayTime = Long.MAX_VALUE;
+
+    /**
+     * The interval (in milliseconds) of the timer display updates while the turn timeout warning is displayed.
+     */
+    private static final long WARNING_DISPLAY_INTERVAL = 10;
+
+    /**
+     * Wakes the dealer thread when a claim arrives or the game is terminated.
+     */
+    private final WakeupSignal wakeup = new WakeupSignal();
+
+    /**
+     * The threads of the players (in the order of the players array, null when the game is hosted by a GameHost).
+     */
+    private final Thread[] playerThreads;
+
+    /**
+     * The service that drives the computer players (created on first use), and its thread (null if the game has no
+     * computer players or is hosted by a GameHost).
+     */
+    private BotService bots;
+    private Thread botsThread;
+
+    /**
+     * Measures the CPU time of the threads when config.cpuReportMillis > 0, and the time of the next report.
+     */
+    private ThreadCpuSampler cpuSampler;
+    private long nextCpuReportTime = Long.MAX_VALUE;
+
+    /**
+     * Statistics of the time (in microseconds) from a claim to its verdict.
+     */
+    private long claimsJudged;
+    private long totalClaimLatency;
+    private long maxClaimLatency;
+
+    /**
+     * The deadline the last step returned (to measure how late the dealer woke up), the reshuffles of this game, and
+     * the cards dealt since dealtSecondStart (for the metrics).
+     */
+    private long lastDeadline = Long.MAX_VALUE;
+    private int reshuffles;
+    private int dealtInSecond;
+    private long dealtSecondStart;
+
+    /**
+     * The sets claimed by the players that were not judged yet.
+     */
+    private final ClaimQueue claims = new ClaimQueue();
 
-    private Thread dealerThread;
+    /**
+     * The journal of the game's events (null if config.journalFile is empty or the journal cannot be created).
+     */
+    private final Journal journal;
 
-    private Semaphore lock = new Semaphore(1, true);
+    /**
+     * Writes the snapshots of the game (null if config.snapshotFile is empty), and the time of the next snapshot.
+     */
+    private final Snapshot.Writer snapshots;
+    private long nextSnapshotTime = Long.MAX_VALUE;
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        reshuffleTime = System.currentTimeMillis() + MINUTE;
-        milliseconds = MINUTE;
+        random = new SplittableRandom(env.config.randomSeed);
+        deck = new Deck(env.config.deckSize, random.split());
+        slotOrder = new int[env.config.tableSize];
+        playerThreads = new Thread[players.length];
+        remainingSets = new SetIndex(FeatureTable.of(env.config), false);
+        for (int card = 0; card < env.config.deckSize; ++card)
+            remainingSets.add(card);
+        journal = openJournal();
+        table.setJournal(journal);
+        if (env.config.snapshotFile.isEmpty()) snapshots = null;
+        else {
+            snapshots = new Snapshot.Writer(env.logger, gameFile(env.config.snapshotFile));
+            nextSnapshotTime = 0;
+        }
+    }
+
+    /**
+     * @param name - a file name, in which %d stands for the random seed of the game.
+     * @return     - the file of this game.
+     */
+    private Path gameFile(String name) {
+        return Paths.get(name.replace("%d", Long.toString(env.config.randomSeed)));
+    }
+
+    /**
+     * @return - the journal of the game, or null if the game is not journaled.
+     */
+    private Journal openJournal() {
+        if (env.config.journalFile.isEmpty()) return null;
+        if (env.config.players > Journal.MAX_PLAYERS) {
+            env.logger.log(Level.WARNING, "A journal keeps up to " + Journal.MAX_PLAYERS
+                    + " players, the game is not journaled.");
+            return null;
+        }
+        Path file = gameFile(env.config.journalFile);
+        try {
+            return Journal.open(env, file);
+        } catch (IOException e) {
+            env.logger.log(Level.WARNING, "Cannot create the journal " + file + ", the game is not journaled.", e);
+            return null;
+        }
     }
 
     /**
@@ -67,53 +191,283 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
-        dealerThread = Thread.currentThread();
-        System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
         for (Player player : players) {
             Thread pThread = new Thread(player, "player" + player.getId());
+            playerThreads[player.getId()] = pThread;
             pThread.start();
         }
-        
-        while (!shouldFinish()) {
+        if (!bots().isEmpty()) {
+            botsThread = new Thread(bots(), "computers");
+            botsThread.start();
+        }
+        if (env.config.cpuReportMillis > 0) {
+            cpuSampler = new ThreadCpuSampler(); // the first report counts from here, once the threads started
+            if (cpuSampler.isSupported())
+                nextCpuReportTime = System.currentTimeMillis() + env.config.cpuReportMillis;
+        }
+
+        // the dealer sleeps until the next deadline (display update or reshuffle) unless a claim arrives before it
+        for (long deadline = step(); deadline != GAME_OVER; deadline = step())
+            wakeup.await(deadline);
+        endGame();
+
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+    }
+
+    /**
+     * Does everything the dealer has to do now: deals the cards when a turn starts, judges the pending claims, refills
+     * the table and updates the timer display, and returns the cards to the deck when the turn is over.
+     *
+     * @return - the time when step should be called again (0 if right away, Long.MAX_VALUE if only on wake up), or
+     *           GAME_OVER if the game is over.
+     */
+    long step() {
+        if (Metrics.enabled()) recordStepMetrics();
+        lastDeadline = nextStep();
+        return lastDeadline;
+    }
+
+    /**
+     * Does the work of step.
+     *
+     * @return - the time when step should be called again, or GAME_OVER.
+     */
+    private long nextStep() {
+        if (shouldFinish()) return GAME_OVER;
+        boolean dealt = dealing;
+        long judged = claimsJudged;
+        if (dealing) {
+            dealing = false;
+            placeCardsOnTable();
+            updateTimerDisplay(true);
+        } else {
+            removeCardsFromTable();
             placeCardsOnTable();
-            timerLoop();
             updateTimerDisplay(false);
+            reportCpuTime();
+        }
+
+        boolean finished = shouldFinish();
+        boolean reshuffle = !finished && shouldReshuffle();
+        if (reshuffle) {
             removeAllCardsFromTable();
+            ++reshuffles;
+            if (Metrics.enabled()) Metrics.reshuffles.increment();
+            dealing = true;
         }
-        announceWinners();
-               
-        System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
-    
+        // steps that changed nothing are not journaled (replaying them would not change anything either)
+        if (journal != null && (dealt || reshuffle || claimsJudged != judged))
+            journal.record(Journal.STEP, 0, 0, reshuffle ? 1 : 0);
+
+        if (finished) return GAME_OVER;
+        takeSnapshot();
+        if (reshuffle) return 0;
+        return claims.isEmpty() ? Math.min(Math.min(Math.min(nextDisplayTime, reshuffleTime), nextCpuReportTime),
+                nextSnapshotTime) : 0;
+    }
+
+    /**
+     * Captures a snapshot of the game and hands it to the snapshot writer, if a snapshot is due. Only the capture (a
+     * copy of the table, the deck and the players' state) runs on the dealer's thread.
+     */
+    private void takeSnapshot() {
+        long now = System.currentTimeMillis();
+        if (now < nextSnapshotTime) return;
+        nextSnapshotTime = now + env.config.snapshotMillis;
+
+        int[] scores = new int[players.length];
+        long[] freezes = new long[players.length];
+        for (int i = 0; i < players.length; ++i) {
+            scores[i] = players[i].getScore();
+            freezes[i] = players[i].getFreezeMillis(now);
         }
+        BoardSnapshot board = table.getBoard(); // the cards and the tokens at the same point
+        snapshots.offer(new Snapshot(dealing, now - turnStartTime, board.getSlotToCard(), deck.toArray(), scores,
+                freezes, board.getTokens()));
+    }
 
     /**
-     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
+     * Restores the game from its snapshot file (see config.snapshotFile), if there is one (i.e. the last run of the game
+     * did not end). Must be called before the game starts.
+     *
+     * @return - true iff the game was restored.
+     * @throws IOException - if the snapshot cannot be read, is not valid (e.g. a token on an empty slot or a negative
+     *                       score), or is a snapshot of a game of another layout.
      */
-    private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime + 1500) { // set reshuffleTime = 60sec
-            long lastSecond = System.currentTimeMillis();
-            //IMPROVE TIMER
-            if(milliseconds != MINUTE) {
-                sleepUntilWokenOrTimeout();
+    public boolean restore() throws IOException {
+        if (snapshots == null) return false;
+        Path path = gameFile(env.config.snapshotFile);
+        if (!Files.exists(path)) return false;
+        Snapshot snapshot = Snapshot.read(path);
+        if (snapshot.slotToCard.length != env.config.tableSize || snapshot.scores.length != players.length)
+            throw new IOException(path + " is a snapshot of a game of another layout.");
+        boolean[] inGame = new boolean[env.config.deckSize];
+        for (int card : snapshot.deck) {
+            if (card < 0 || card >= inGame.length || inGame[card])
+                throw new IOException(path + " is not a valid game snapshot.");
+            inGame[card] = true;
+        }
+        for (int card : snapshot.slotToCard) {
+            if (card < -1 || card >= inGame.length || card >= 0 && inGame[card])
+                throw new IOException(path + " is not a valid game snapshot.");
+            if (card >= 0) inGame[card] = true;
+        }
+        for (int i = 0; i < players.length; ++i) {
+            if (snapshot.scores[i] < 0 || snapshot.freezes[i] < 0 || snapshot.tokens[i].length > env.config.featureSize)
+                throw new IOException(path + " is not a valid game snapshot.");
+            long slots = 0;
+            for (int slot : snapshot.tokens[i]) {
+                // a token is on a card, and a player has one token at most on a slot
+                if (slot < 0 || slot >= env.config.tableSize || snapshot.slotToCard[slot] < 0
+                        || (slots >>> slot & 1) != 0)
+                    throw new IOException(path + " is not a valid game snapshot.");
+                slots |= 1L << slot;
             }
-            if(milliseconds == MINUTE || (System.currentTimeMillis() - lastSecond)/1000 == 1) //checks if 1 second passed, updates only if it did
-                updateTimerDisplay(false);
-            if(milliseconds < 0) {break;}
+        }
+
+        deck.clear();
+        for (int card : snapshot.deck)
+            deck.add(card);
+        for (int slot = 0; slot < snapshot.slotToCard.length; ++slot)
+            if (snapshot.slotToCard[slot] >= 0)
+                table.placeCard(snapshot.slotToCard[slot], slot);
+        for (int card = 0; card < inGame.length; ++card)
+            if (!inGame[card])
+                remainingSets.remove(card);
+        for (int i = 0; i < players.length; ++i) {
+            players[i].restore(snapshot.scores[i], snapshot.freezes[i]);
+            for (int slot : snapshot.tokens[i])
+                table.placeToken(i, slot);
+        }
+
+        dealing = snapshot.dealing;
+        long now = System.currentTimeMillis();
+        turnStartTime = now - snapshot.turnElapsed;
+        if (env.config.turnTimeoutMillis > 0)
+            reshuffleTime = turnStartTime + env.config.turnTimeoutMillis;
+        nextDisplayTime = now;
+        env.logger.log(Level.INFO, "Game restored from " + path + ".");
+        return true;
+    }
+
+    /**
+     * Waits until the snapshot file of the game is up to date, i.e. deleted once the game is over. The snapshots are
+     * written by a daemon thread, so the main thread must wait for it before the JVM exits.
+     */
+    public void awaitSnapshots() throws InterruptedException {
+        if (snapshots != null) Snapshot.Writer.awaitWrites();
+    }
+
+    /**
+     * Replays a step of the dealer from a journal: does what nextStep did, except that the decision to reshuffle is
+     * taken from the journal, so the replay does not depend on the clock (or on the displays).
+     *
+     * @param reshuffle - true iff the dealer reshuffled in the journaled step.
+     */
+    void replayStep(boolean reshuffle) {
+        if (dealing) {
+            dealing = false;
+            placeCardsOnTable();
+        } else {
             removeCardsFromTable();
             placeCardsOnTable();
         }
+        if (reshuffle) {
+            removeAllCardsFromTable();
+            dealing = true;
+        }
+    }
+
+    /**
+     * Terminates the players and announces the winners, once step returned GAME_OVER (the players are terminated
+     * first, so nothing changes on the display after the announcement).
+     */
+    void endGame() {
+        terminatePlayers();
+        announceWinners();
+        if (journal != null) journal.close();
+        if (snapshots != null) snapshots.delete();
+        if (Metrics.enabled()) {
+            Metrics.reshufflesPerGame.record(reshuffles);
+            Metrics.gamesPlayed.increment();
+        }
+        if (claimsJudged > 0)
+            env.logger.log(Level.INFO, "Claims judged: " + claimsJudged + ", claim to verdict latency: mean "
+                    + totalClaimLatency / claimsJudged + "us, max " + maxClaimLatency + "us.");
+    }
+
+    /**
+     * Records how late the dealer woke up after the last deadline, and the cards dealt in the last second.
+     */
+    private void recordStepMetrics() {
+        long now = System.currentTimeMillis();
+        if (lastDeadline > 0 && lastDeadline != Long.MAX_VALUE && now >= lastDeadline)
+            Metrics.dealerJitter.record(now - lastDeadline);
+        if (now - dealtSecondStart >= 1000) {
+            if (dealtInSecond > 0) Metrics.cardsDealtPerSecond.record(dealtInSecond);
+            dealtInSecond = 0;
+            dealtSecondStart = now;
+        }
+    }
+
+    /**
+     * Prints the CPU time used by every thread since the last report, if a report is due.
+     */
+    private void reportCpuTime() {
+        long now = System.currentTimeMillis();
+        if (now < nextCpuReportTime) return;
+        nextCpuReportTime = now + env.config.cpuReportMillis;
+        String report = cpuSampler.sample();
+        if (env.config.consoleInfo) System.out.println(report.replaceAll("(?m)^", "Info: "));
+        env.logger.log(Level.INFO, report);
+    }
+
+    /**
+     * Terminates the computer players and the player threads (in the reverse order of their creation) and waits for
+     * them to finish.
+     */
+    private void terminatePlayers() {
+        bots().terminate();
+        if (botsThread != null)
+            try { botsThread.join(); } catch (InterruptedException ignored) {}
+        for (int i = players.length - 1; i >= 0; --i) {
+            players[i].terminate();
+            if (playerThreads[i] == null) continue;
+            try { playerThreads[i].join(); } catch (InterruptedException ignored) {}
+        }
+    }
+
+    /**
+     * Check if the cards on the table should be returned to the deck: when the turn timed out, or when there is no
+     * turn timeout and there is no legal set on the table.
+     *
+     * @return true iff the table should be reshuffled.
+     */
+    private boolean shouldReshuffle() {
+        if (env.config.turnTimeoutMillis > 0)
+            return System.currentTimeMillis() >= reshuffleTime;
+        return table.isDead();
+    }
+
+    /**
+     * @return - the service that drives the computer players of the game.
+     */
+    synchronized BotService bots() {
+        if (bots == null) bots = new BotService(env, table, players);
+        return bots;
     }
 
     /**
      * Called when the game should be terminated due to an external event.
      */
     public void terminate() {
-        // TODO implement
-        //interrput!
         terminate = true;
+        bots().terminate();
         Arrays.stream(players).forEach(Player::terminate);
-        //for every player: player.terminate = true;
+        wakeup.signal();
     }
 
     /**
@@ -122,77 +476,140 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || remainingSets.count() == 0;
     }
 
     /**
-     * Checks if any cards should be removed from the table and returns them to the deck.
+     * Removes the card in a slot from the table and from the game (i.e. it will not return to the deck).
+     *
+     * @param slot - the slot of the card to discard.
      */
-    private void removeCardsFromTable() {
-        // TODO implement
+    private void discardCard(int slot) {
+        int card = table.getCardInSlot(slot);
+        if (card == Table.EMPTY) return;
+        table.removeCard(slot);
+        remainingSets.remove(card);
     }
 
     /**
-     * Check if any cards can be removed from the deck and placed on the table.
+     * Judges all the pending claims (oldest first) and discards the cards of the legal sets from the table.
      */
-    private void placeCardsOnTable() {
-        // TODO implement
-        /*
-         * reshuffle
-         *  while(deck > 0 & numOfCardsToPlace >0)
-         *  insert to one of the empty slots the last card in the deck
-         *  table.placeCard(int card, int slot)
-         */
-
-        Collections.shuffle(deck);
-        Integer[] slotToCard = table.getSlotToCard();
-        //MAGIC NUMBER - 11
-        List<Integer> li = IntStream.rangeClosed(0, 11).boxed().collect(Collectors.toList());
-        Collections.shuffle(li);
-        for(int slotNum = 0; slotNum < li.size() && deck.size() > 0; slotNum++) {
-            if(slotToCard[li.get(slotNum)] == null) {
-                //remove last card from deck
-                Integer cardNum = deck.remove(deck.size() - 1);
-                // table.placeCard(int card,int slot)
-                table.placeCard(cardNum, li.get(slotNum));
-                try{
-                    //MAGIC NUMBER - 200
-                    Thread.currentThread().sleep(env.config.tableDelayMillis);
-                } catch(InterruptedException ex) {}
+    void removeCardsFromTable() {
+        boolean setTaken = false;
+        for (ClaimQueue.Claim claim = claims.drain(); claim != null; claim = claim.next()) {
+            setTaken |= judge(claim);
+
+            long latency = (System.nanoTime() - claim.timestamp) / 1000;
+            ++claimsJudged;
+            totalClaimLatency += latency;
+            maxClaimLatency = Math.max(maxClaimLatency, latency);
+            if (Metrics.enabled()) Metrics.claimToVerdict.record(latency);
+            if (env.logger.isLoggable(Level.FINE))
+                env.logger.log(Level.FINE, "Claim of player {0} judged in {1}us.", new Object[]{claim.player, latency});
+        }
+
+        if (setTaken) {
+            placeCardsOnTable();
+            updateTimerDisplay(true);
+        }
+    }
+
+    /**
+     * Awards a point for a legal set (and discards its cards) or penalizes the player for an illegal one. Claims on
+     * slots whose cards were replaced since the player's tokens were placed are dismissed, including claims that
+     * overlap a set that was taken earlier in the same batch (the cards of a set are discarded as soon as it is judged).
+     *
+     * @param claim - the claim to judge.
+     * @return      - true iff the claim was a legal set.
+     */
+    private boolean judge(ClaimQueue.Claim claim) {
+        Player player = players[claim.player];
+        if (journal != null) journal.recordClaim(claim.player, claim.slots, claim.cards, claim.versions);
+        for (int i = 0; i < claim.slots.length; ++i) {
+            // a slot whose card was replaced since the token was placed (even by the same card) dismisses the claim
+            if (table.getSlotVersion(claim.slots[i]) != claim.versions[i]
+                    || table.getCardInSlot(claim.slots[i]) != claim.cards[i]) {
+                if (Metrics.enabled()) Metrics.dismissedClaims.increment();
+                if (journal != null) journal.record(Journal.DISMISSED, claim.player, 0, 0);
+                player.claimDismissed();
+                return false;
             }
         }
-        reshuffleTime = System.currentTimeMillis() + MINUTE;
+
+        if (env.util.testSet(claim.cards)) {
+            for (int slot : claim.slots) // with the tokens on them, while the players go on with the other slots
+                discardCard(slot);
+            if (Metrics.enabled()) Metrics.legalSets.increment();
+            if (journal != null) journal.record(Journal.POINT, claim.player, 0, (int) env.config.pointFreezeMillis);
+            player.point();
+            return true;
+        }
+        if (Metrics.enabled()) Metrics.penalties.increment();
+        if (journal != null) journal.record(Journal.PENALTY, claim.player, 0, (int) env.config.penaltyFreezeMillis);
+        player.penalty();
+        return false;
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Check if any cards can be removed from the deck and placed on the table.
      */
-    private void sleepUntilWokenOrTimeout() {
-        // TODO implement
-        try {
-            Thread.currentThread().sleep(1000);
-        } catch(InterruptedException ex){
-            //handle interrput (check set...)
-            System.out.println("info: got interrupted"); //remove latar
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    private void placeCardsOnTable() {
+        int empty = 0;
+        for (int slot = 0; slot < env.config.tableSize; ++slot)
+            if (table.getCardInSlot(slot) == Table.EMPTY)
+                slotOrder[empty++] = slot;
+
+        // fill the empty slots in a random order
+        int dealt = 0;
+        for (; empty > 0 && !deck.isEmpty(); --empty, ++dealt)
+            table.placeCard(deck.draw(), takeRandomSlot(empty));
+        if (dealt > 0 && Metrics.enabled()) {
+            dealtInSecond += dealt;
+            Metrics.cardsDealt.add(dealt);
         }
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Removes a random slot of the first count slots in slotOrder (a single step of a Fisher-Yates shuffle).
+     *
+     * @param count - the number of slots left in slotOrder.
+     * @return      - the slot taken.
+     */
+    private int takeRandomSlot(int count) {
+        int index = random.nextInt(count);
+        int slot = slotOrder[index];
+        slotOrder[index] = slotOrder[count - 1];
+        return slot;
+    }
+
+    /**
+     * Reset and/or update the countdown and the countdown display. The display is updated once a second, or every
+     * WARNING_DISPLAY_INTERVAL milliseconds while the turn timeout warning is displayed.
+     *
+     * @param reset - true iff a new turn starts (i.e. after a reshuffle or a legal set).
      */
     private void updateTimerDisplay(boolean reset) {
-        // TODO implement
-        if(!reset) {
-            if(milliseconds >= 0) {
-                env.ui.setCountdown(milliseconds, false);
-
-                milliseconds -= 1000;
-            } else {
-                reshuffleTime = System.currentTimeMillis() + MINUTE;
-                milliseconds = MINUTE;
-            }
-        }
+        long now = System.currentTimeMillis();
+        if (reset) {
+            turnStartTime = now;
+            if (env.config.turnTimeoutMillis > 0)
+                reshuffleTime = now + env.config.turnTimeoutMillis;
+        } else if (now < nextDisplayTime) return;
+
+        if (env.config.turnTimeoutMillis > 0) {
+            long remaining = Math.max(0, reshuffleTime - now);
+            boolean warn = remaining <= env.config.turnTimeoutWarningMillis;
+            env.ui.setCountdown(remaining, warn);
+            if (warn)
+                nextDisplayTime = now + WARNING_DISPLAY_INTERVAL;
+            else // the next whole second, or the start of the warning if it comes first
+                nextDisplayTime = Math.min(now + (remaining % 1000 == 0 ? 1000 : remaining % 1000),
+                        reshuffleTime - env.config.turnTimeoutWarningMillis);
+        } else if (env.config.turnTimeoutMillis == 0) {
+            long elapsed = now - turnStartTime;
+            env.ui.setElapsed(elapsed);
+            nextDisplayTime = now + 1000 - elapsed % 1000;
+        } else nextDisplayTime = Long.MAX_VALUE;
     }
 
     /**
@@ -200,19 +617,19 @@ public class Dealer implements Runnable {
      */
     private void removeAllCardsFromTable() {
         if(!terminate) {
-        // TODO implement
-        //remove from table - insert back to deck
-        //MAGIC NUMBER - 11
             table.removeAllTokens();
             Arrays.stream(players).forEach(Player::removeAllTokens);
-            List<Integer> li = IntStream.rangeClosed(0, 11).boxed().collect(Collectors.toList());
-            Collections.shuffle(li);
-            for(int i = 0; i < li.size(); i++) {
-                deck.add(table.getCardInSlot(li.get(i)));
-                table.removeCard(li.get(i));
-                try {
-                    Thread.currentThread().sleep(env.config.tableDelayMillis);
-                } catch(InterruptedException ex) {}
+            for (int slot = 0; slot < env.config.tableSize; ++slot)
+                slotOrder[slot] = slot;
+
+            // clear the slots in a random order
+            for (int count = env.config.tableSize; count > 0; --count) {
+                int slot = takeRandomSlot(count);
+                int card = table.getCardInSlot(slot);
+                if (card != Table.EMPTY) {
+                    table.removeCard(slot);
+                    deck.add(card);
+                }
             }
         }
     }
@@ -221,18 +638,29 @@ public class Dealer implements Runnable {
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-        // TODO implement
+        int maxScore = Arrays.stream(players).mapToInt(Player::getScore).max().orElse(0);
+        env.ui.announceWinner(Arrays.stream(players).filter(player -> player.getScore() == maxScore)
+                .mapToInt(Player::getId).toArray());
     }
 
-    public void submitedSet(int playerIdSubmitted) {
-        boolean acquired = false;
-        try {
-            lock.acquire();
-            acquired = true;
-        } catch(InterruptedException ignored) {}
-        if(acquired) {
-            System.out.printf("Info: Thread %s submitted set.%n", Thread.currentThread().getName());
-            lock.release();
-        }
+    /**
+     * Called by a player to claim a set. Never blocks: the claim is queued and judged by the dealer thread, which then
+     * calls the player's point, penalty or claimDismissed method.
+     *
+     * @param player   - the id of the player.
+     * @param slots    - the slots of the claimed cards.
+     * @param cards    - the cards in the slots, as the player saw them.
+     * @param versions - the versions of the slots when the player placed the tokens (see Table.getTokenVersion).
+     */
+    public void submitedSet(int player, int[] slots, int[] cards, int[] versions) {
+        claims.offer(new ClaimQueue.Claim(player, slots, cards, versions, System.nanoTime()));
+        wakeup.signal();
+    }
+
+    /**
+     * @return - the signal that wakes the dealer (a GameHost steps the dealer when it is signaled).
+     */
+    WakeupSignal wakeup() {
+        return wakeup;
     }
 }
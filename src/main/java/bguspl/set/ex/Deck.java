@@ -0,0 +1,99 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The dealer's deck of cards. The deck is kept in a primitive array in no particular order: drawing swaps a uniformly
+ * random card with the last one and shrinks the deck (i.e. a single step of a Fisher-Yates shuffle), so the deck never
+ * needs to be shuffled as a whole.
+ *
+ * @inv 0 <= size() <= capacity
+ */
+class Deck {
+
+    /**
+     * The cards in the deck (in the first size places).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards in the deck.
+     */
+    private int size;
+
+    /**
+     * The source of randomness of the draws.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Creates a full deck.
+     *
+     * @param deckSize - the number of cards in a full deck (i.e. the cards are 0 to deckSize - 1).
+     * @param random   - the source of randomness of the draws.
+     */
+    Deck(int deckSize, SplittableRandom random) {
+        this.random = random;
+        cards = new int[deckSize];
+        for (int card = 0; card < deckSize; ++card)
+            cards[card] = card;
+        size = deckSize;
+    }
+
+    /**
+     * @return - the number of cards in the deck.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff there are no cards in the deck.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes a uniformly random card from the deck.
+     *
+     * @return - the card drawn.
+     *
+     * @pre  - !isEmpty()
+     * @post - size() == @pre(size()) - 1
+     */
+    int draw() {
+        int index = random.nextInt(size);
+        int card = cards[index];
+        cards[index] = cards[--size];
+        return card;
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @param card - the card to return (must not be in the deck already).
+     *
+     * @post - size() == @pre(size()) + 1
+     */
+    void add(int card) {
+        cards[size++] = card;
+    }
+
+    /**
+     * Removes all the cards from the deck.
+     *
+     * @post - isEmpty()
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return - a copy of the cards in the deck.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(cards, size);
+    }
+}
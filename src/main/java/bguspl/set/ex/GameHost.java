@@ -0,0 +1,196 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Hosts many independent games in one JVM on a shared, bounded pool of threads. The dealer, the players and the AIs of
+ * the hosted games have no threads of their own: they are stepped by the pool whenever they are signaled or their next
+ * deadline passes, so an idle game costs memory only.
+ * <p>
+ * The games should not block (i.e. their table delay should be zero), since a blocked step holds a pool thread. The
+ * immutable resources of the games (e.g. the Util object and the feature tables) can be shared through their Env.
+ */
+public class GameHost implements AutoCloseable {
+
+    /**
+     * The pool that runs the steps of all the games.
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * The number of games that were started and are not over yet.
+     */
+    private final AtomicInteger activeGames = new AtomicInteger();
+
+    /**
+     * The class constructor.
+     *
+     * @param threads - the number of threads of the pool.
+     */
+    public GameHost(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game-host-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Creates a game (without starting it).
+     *
+     * @param env - the game environment objects.
+     * @return    - the game.
+     */
+    public Game create(Env env) {
+        return new Game(env);
+    }
+
+    /**
+     * @return - the number of threads of the pool.
+     */
+    public int threads() {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * @return - the number of games that were started and are not over yet.
+     */
+    public int activeGames() {
+        return activeGames.get();
+    }
+
+    /**
+     * Stops running the games (games that are not over yet are abandoned).
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A hosted game, with its own life cycle: created, started, and over (when no legal set is left, or when it is
+     * terminated).
+     */
+    public class Game {
+
+        /**
+         * The game environment object.
+         */
+        public final Env env;
+
+        /**
+         * Game entities.
+         */
+        private final Table table;
+        private final Dealer dealer;
+        private final Player[] players;
+
+        /**
+         * The final scores of the players, completed when the game is over.
+         */
+        private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        /**
+         * The number of stepped tasks of the game that are not over yet.
+         */
+        private final AtomicInteger activeTasks = new AtomicInteger();
+
+        private Game(Env env) {
+            this.env = env;
+            players = new Player[env.config.players];
+            table = new Table(env);
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        }
+
+        /**
+         * Starts the game.
+         *
+         * @throws IllegalStateException - if the game was already started.
+         */
+        public void start() {
+            if (!started.compareAndSet(false, true))
+                throw new IllegalStateException("The game was already started.");
+            activeGames.incrementAndGet();
+
+            SteppedTask[] tasks = new SteppedTask[players.length + 2];
+            int count = 0;
+            tasks[count++] = new SteppedTask(executor, dealer.wakeup(), guard(dealer::step), () -> {
+                dealer.terminate(); // the players' and bots' tasks are over once they see it
+                taskOver();
+            });
+            for (Player player : players)
+                tasks[count++] = new SteppedTask(executor, player.wakeup(), guard(player::act), this::taskOver);
+            BotService bots = dealer.bots();
+            if (!bots.isEmpty())
+                tasks[count++] = new SteppedTask(executor, bots.wakeup(), guard(bots::step), this::taskOver);
+            activeTasks.set(count);
+            for (int i = 0; i < count; ++i)
+                tasks[i].wake();
+        }
+
+        /**
+         * Terminates the game (its result is completed once the players were terminated).
+         */
+        public void terminate() {
+            dealer.terminate();
+        }
+
+        /**
+         * @return - the final scores of the players, completed when the game is over (exceptionally if a step threw).
+         */
+        public CompletableFuture<int[]> result() {
+            return result;
+        }
+
+        /**
+         * @param id - the id of the player.
+         * @return   - the player (e.g. to forward the key presses of a human player).
+         */
+        public Player getPlayer(int id) {
+            return players[id];
+        }
+
+        /**
+         * Ends the game once the steps of all its entities returned Dealer.GAME_OVER (so no step runs anymore).
+         */
+        private void taskOver() {
+            if (activeTasks.decrementAndGet() > 0) return;
+            dealer.endGame();
+            int[] scores = new int[players.length];
+            for (int i = 0; i < players.length; i++)
+                scores[i] = players[i].getScore();
+            activeGames.decrementAndGet();
+            result.complete(scores);
+        }
+
+        /**
+         * Ends the game if a step throws (instead of leaving the game stuck).
+         *
+         * @param step - the step of a game entity.
+         * @return     - the guarded step.
+         */
+        private LongSupplier guard(LongSupplier step) {
+            return () -> {
+                try {
+                    return step.getAsLong();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    dealer.terminate();
+                    return Dealer.GAME_OVER;
+                }
+            };
+        }
+    }
+}
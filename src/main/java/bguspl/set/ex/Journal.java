@@ -0,0 +1,218 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+
+/**
+ * An append-only binary journal of the state-changing events of a game: the cards dealt and removed, the tokens placed
+ * and removed by the players, the claims and their verdicts (with the freeze they cost), and the steps of the dealer
+ * (with its reshuffle decisions). The header keeps the random seed and the layout of the game, so a Replay can feed the
+ * events back through a Dealer and a Table.
+ * The events are fixed size records appended to a direct buffer. Whenever it fills up (every BUFFER_SIZE / RECORD_SIZE
+ * events) it is handed to a writer thread, which writes it to the file while the game goes on with another buffer, so
+ * recording an event costs a few stores under a lock, and never any I/O. A claim and its cards are appended in a single
+ * call (see recordClaim), so no other event can come between them.
+ * Note: the lock is shared by all the threads of the game, so a journaled game takes it on every token placed or
+ * removed by any player, and the token path of the table is no longer lock-free (see Table.playerTokens). Games that
+ * are not journaled do not take it.
+ */
+final class Journal {
+
+    static final int MAGIC = 0x5345544a; // SETJ
+    static final int VERSION = 2;
+
+    /**
+     * The header: magic, version, seed, start time, players, feature size, feature count, rows and columns.
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 5 * 4;
+
+    /**
+     * An event: type (byte), player (unsigned byte, so a journal keeps the events of 256 players at most), slot (short),
+     * card or freeze millis (int) and millis since the start (int).
+     */
+    static final int RECORD_SIZE = 12;
+
+    /**
+     * The number of players a journal can keep (the player of an event is an unsigned byte).
+     */
+    static final int MAX_PLAYERS = 256;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The event types.
+     */
+    static final byte DEAL = 0;           // slot, card
+    static final byte REMOVE = 1;         // slot, card
+    static final byte TOKEN_PLACED = 2;   // player, slot
+    static final byte TOKEN_REMOVED = 3;  // player, slot
+    static final byte CLAIM = 4;          // player (followed by featureSize CLAIM_CARD and CLAIM_VERSION pairs)
+    static final byte CLAIM_CARD = 5;     // player, slot, card
+    static final byte POINT = 6;          // player, freeze millis
+    static final byte PENALTY = 7;        // player, freeze millis
+    static final byte DISMISSED = 8;      // player
+    static final byte STEP = 9;           // card = 1 iff the dealer reshuffled in the step
+    static final byte GAME_OVER = 10;
+    static final byte CLAIM_VERSION = 11; // player, slot, version of the slot when the token was placed
+
+    private final Env env;
+    private final Path path;
+    private final long startTime;
+
+    /**
+     * The buffer the events are appended to.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The full buffers, in the order they are to be written (END after the last one), and the written buffers that can
+     * be appended to again.
+     */
+    private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<>();
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /**
+     * The journal file (written by the writer thread only, then closed by close).
+     */
+    private final FileChannel channel;
+    private final Thread writerThread;
+
+    /**
+     * True iff the journal is closed (guarded by this), or writing failed (the events are not recorded anymore).
+     */
+    private boolean closed;
+    private volatile boolean failed;
+
+    private Journal(Env env, Path path, FileChannel channel) {
+        this.env = env;
+        this.path = path;
+        this.channel = channel;
+        startTime = System.currentTimeMillis();
+        writerThread = new Thread(this::writeLoop, "journal-writer");
+        writerThread.setDaemon(true);
+    }
+
+    /**
+     * Creates a journal file (replacing an existing one) and writes its header.
+     *
+     * @param env  - the environment object of the game.
+     * @param path - the journal file.
+     * @return     - the journal.
+     * @throws IOException - if the file cannot be created.
+     */
+    static Journal open(Env env, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        Journal journal = new Journal(env, path, channel);
+        journal.buffer.putInt(MAGIC).putInt(VERSION).putLong(env.config.randomSeed).putLong(journal.startTime)
+                .putInt(env.config.players).putInt(env.config.featureSize).putInt(env.config.featureCount)
+                .putInt(env.config.rows).putInt(env.config.columns);
+        journal.writerThread.start();
+        return journal;
+    }
+
+    /**
+     * Appends an event to the journal.
+     *
+     * @param type   - the type of the event.
+     * @param player - the player (0 if irrelevant).
+     * @param slot   - the slot (0 if irrelevant).
+     * @param card   - the card, or the freeze millis of a verdict (0 if irrelevant).
+     */
+    synchronized void record(byte type, int player, int slot, int card) {
+        if (closed || failed) return;
+        if (buffer.remaining() < RECORD_SIZE) handOff();
+        put(type, player, slot, card, (int) (System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Appends a claim to the journal: a CLAIM event followed by a CLAIM_CARD and a CLAIM_VERSION event for every slot of
+     * the claim, with no other event between them.
+     *
+     * @param player   - the player who claimed the set.
+     * @param slots    - the slots of the claim.
+     * @param cards    - the cards in the slots when the tokens were placed.
+     * @param versions - the versions of the slots when the tokens were placed.
+     */
+    synchronized void recordClaim(int player, int[] slots, int[] cards, int[] versions) {
+        if (closed || failed) return;
+        if (buffer.remaining() < (1 + 2 * slots.length) * RECORD_SIZE) handOff();
+        int millis = (int) (System.currentTimeMillis() - startTime);
+        put(CLAIM, player, 0, 0, millis);
+        for (int i = 0; i < slots.length; ++i) {
+            put(CLAIM_CARD, player, slots[i], cards[i], millis);
+            put(CLAIM_VERSION, player, slots[i], versions[i], millis);
+        }
+    }
+
+    private void put(byte type, int player, int slot, int card, int millis) {
+        buffer.put(type).put((byte) player).putShort((short) slot).putInt(card).putInt(millis);
+    }
+
+    /**
+     * Hands the buffer to the writer thread, and goes on with a written buffer (or a new one if none was written yet).
+     */
+    private void handOff() {
+        buffer.flip();
+        full.add(buffer);
+        ByteBuffer next = free.poll();
+        buffer = next != null ? next : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * The main loop of the writer thread: writes the full buffers to the file until END. If writing fails, the journal
+     * stops recording (the game goes on).
+     */
+    private void writeLoop() {
+        try {
+            for (ByteBuffer events = full.take(); events != END; events = full.take()) {
+                try {
+                    while (!failed && events.hasRemaining())
+                        channel.write(events);
+                } catch (IOException e) {
+                    env.logger.log(Level.WARNING, "Cannot write the journal " + path + ", the journal is incomplete.", e);
+                    failed = true;
+                }
+                events.clear();
+                free.add(events);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the end of the game, waits for the writer thread to write the buffered events and closes the file.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) return;
+            record(GAME_OVER, 0, 0, 0);
+            closed = true;
+            buffer.flip();
+            full.add(buffer);
+            full.add(END);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            env.logger.log(Level.WARNING, "Cannot close the journal " + path + ".", e);
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package bguspl.set.ex;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 
 import bguspl.set.Env;
+import bguspl.set.Metrics;
 
 /**
  * This class manages the players' threads and data
@@ -24,6 +24,7 @@ public class Player implements Runnable {
      * Game entities.
      */
     private final Table table;
+    private final Dealer dealer;
 
     /**
      * The id of the player (starting from 0).
@@ -35,11 +36,6 @@ public class Player implements Runnable {
      */
     private Thread playerThread;
 
-    /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
-     */
-    private Thread aiThread;
-
     /**
      * True iff the player is human (not a computer player).
      */
@@ -58,8 +54,39 @@ public class Player implements Runnable {
     //private queue (capacity = 3) public function of push,pop,get size
     private ArrayBlockingQueue<Integer> queue; 
 
-    private int tokensPlaced;
+    /**
+     * True iff the player claimed a set and the dealer did not judge it yet.
+     */
+    private volatile boolean awaitingVerdict;
+
+    /**
+     * The time (in System.currentTimeMillis units) until which the player is frozen (0 if not frozen), and since when
+     * (for the metrics only).
+     */
+    private volatile long frozenUntil;
+    private volatile long frozenSince;
+
+    /**
+     * The end of the freeze shown in the freeze display, and the time of the next display update (player thread only).
+     */
+    private long displayedFreeze;
+    private long nextFreezeDisplay;
+
+    /**
+     * Wakes the player thread on key presses, verdicts and termination.
+     */
+    private final WakeupSignal wakeup = new WakeupSignal();
 
+    /**
+     * Wakes the bots of the game when a computer player can accept key presses again (null for a human player).
+     */
+    private volatile WakeupSignal botWakeup;
+
+    /**
+     * The time (in System.nanoTime units) of the oldest key press of each slot in the queue, 0 if none (for the metrics
+     * only, without allocating per key press).
+     */
+    private final AtomicLongArray pressTimes;
 
     /**
      * The class constructor.
@@ -73,63 +100,110 @@ public class Player implements Runnable {
     public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
         this.env = env;
         this.table = table;
+        this.dealer = dealer;
         this.id = id;
         this.human = human;
         queue = new ArrayBlockingQueue<>(3);
-        tokensPlaced = 0;
+        pressTimes = new AtomicLongArray(env.config.tableSize);
     }
 
     /**
-     * The main player thread of each player starts here (main loop for the player thread).
+     * The main player thread of each player starts here (main loop for the player thread). The thread is parked
+     * whenever it has nothing to do, until a key is pressed, a verdict arrives, the freeze display needs an update or
+     * the game is terminated.
      */
     @Override
     public void run() {
         playerThread = Thread.currentThread();
-        System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
-        if (!human) createArtificialIntelligence();
-
-        while (!terminate) {
-            // TODO implement main player loop
-            /*
-             * if(table.countCards < rows*columns(=12))
-             *  wait until = 12
-             * else
-             *  wait until key press
-             */
-        }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+
+        while (!terminate)
+            wakeup.await(act());
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+        if (env.config.consoleInfo) System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Does everything the player has to do now: updates the freeze display and handles the pending key presses. Key
+     * presses are dropped while waiting for a verdict or frozen.
+     *
+     * @return - the time when act should be called again (Long.MAX_VALUE if only on wake up), or Dealer.GAME_OVER if
+     *           the player was terminated.
      */
-    private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
-            while (!terminate) {
-                // TODO implement player key press simulator
-                try {
-                    synchronized (this) { wait(); }
-                } catch (InterruptedException ignored) {}
+    long act() {
+        if (terminate) return Dealer.GAME_OVER;
+        if (awaitingVerdict) {
+            clearQueue();
+            return Long.MAX_VALUE;
+        }
+
+        // read after awaitingVerdict, so the freeze of the last verdict is seen
+        long frozen = frozenUntil;
+        long now = System.currentTimeMillis();
+        if (frozen != displayedFreeze) {
+            displayedFreeze = frozen;
+            nextFreezeDisplay = now;
+        }
+        if (now < frozen) {
+            if (now >= nextFreezeDisplay) {
+                long remaining = frozen - now;
+                env.ui.setFreeze(id, remaining);
+                nextFreezeDisplay = now + (remaining % 1000 == 0 ? 1000 : remaining % 1000);
             }
-            System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+            clearQueue();
+            return Math.min(nextFreezeDisplay, frozen);
+        }
+        if (frozen != 0) {
+            frozenUntil = displayedFreeze = 0;
+            env.ui.setFreeze(id, 0);
+            if (Metrics.enabled()) Metrics.freezeTime.record(now - frozenSince); // the freeze the player actually had
+        }
+
+        for (Integer slot = queue.poll(); slot != null && !awaitingVerdict; slot = queue.poll())
+            toggleToken(slot);
+        // after the queue is drained, so the bot finds room for its next key presses
+        WakeupSignal bots = botWakeup;
+        if (bots != null) bots.signal();
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return - true iff key presses are accepted (i.e. the player is not frozen and is not waiting for a verdict).
+     */
+    boolean acceptsKeys() {
+        return !awaitingVerdict && System.currentTimeMillis() >= frozenUntil;
+    }
+
+    /**
+     * @return - true iff the player is a human player.
+     */
+    boolean isHuman() {
+        return human;
+    }
+
+    /**
+     * @return - the signal that wakes the player (a GameHost steps the player when it is signaled).
+     */
+    WakeupSignal wakeup() {
+        return wakeup;
+    }
+
+    /**
+     * Sets the signal that wakes the bots of the game whenever the (computer) player drained its key presses.
+     *
+     * @param botWakeup - the signal of the BotService.
+     */
+    void setBotWakeup(WakeupSignal botWakeup) {
+        this.botWakeup = botWakeup;
     }
 
     /**
      * Called when the game should be terminated due to an external event.
      */
     public void terminate() {
-        // TODO implement
         terminate = true;
+        wakeup.signal();
     }
 
     /**
@@ -138,31 +212,100 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        // TODO implement
-        //add to queue
-        //attempt to pop (and place token)
-        queue.add(slot);
-        queuePop();
-    }
-
-    private void queuePop() {
-        Integer slotNum = queue.remove();
-        boolean tokenStateAtSlot = table.getPlayerTokenState(id, slotNum);
-        System.out.println("queuePop");
-        if(tokenStateAtSlot) {
-            tokensPlaced--; // should be synced
-            table.removeToken(id, slotNum);
+        offerKey(slot);
+    }
+
+    /**
+     * Queues a key press, if the player accepts key presses and its queue is not full.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * @return     - true iff the key press was queued.
+     */
+    boolean offerKey(int slot) {
+        if (!acceptsKeys()) return false;
+        // the time is kept before the key press is queued, so the player thread never takes the press without it
+        boolean timed = Metrics.enabled() && pressTimes.compareAndSet(slot, 0, System.nanoTime());
+        if (!queue.offer(slot)) {
+            if (timed) pressTimes.set(slot, 0);
+            return false;
         }
-        else {
-            if(tokensPlaced < 3) {
-                tokensPlaced++;
-                table.placeToken(id, slotNum);
-                if(tokensPlaced == 3){
-                    //submit set to dealer
-                    System.out.println("placed 3");
-                }
+        if (Metrics.enabled()) Metrics.keyPresses.increment();
+        wakeup.signal();
+        return true;
+    }
+
+    /**
+     * Places a token on the slot, or removes it if the player already has a token there. Claims a set once the player
+     * has featureSize tokens on the table.
+     *
+     * @param slot - the slot of the key pressed.
+     */
+    private void toggleToken(int slot) {
+        long pressTime = Metrics.enabled() ? pressTimes.getAndSet(slot, 0) : 0;
+        if (table.getCardInSlot(slot) == Table.EMPTY) return;
+        long tokens = table.getPlayerTokenMask(id);
+        if ((tokens >>> slot & 1) != 0)
+            table.removeToken(id, slot);
+        else if (Long.bitCount(tokens) < env.config.featureSize && table.placeToken(id, slot)) {
+            if (Metrics.enabled()) {
+                Metrics.tokensPlaced.increment();
+                if (pressTime != 0) Metrics.keyPressToToken.record((System.nanoTime() - pressTime) / 1000);
             }
+            int[] slots = table.getPlayerTokens(id);
+            if (slots.length == env.config.featureSize)
+                claimSet(slots);
+        }
+    }
+
+    /**
+     * Claims the cards in the given slots as a set.
+     *
+     * @param slots - the slots on which the player placed tokens.
+     */
+    private void claimSet(int[] slots) {
+        int[] cards = new int[slots.length];
+        int[] versions = new int[slots.length];
+        for (int i = 0; i < slots.length; ++i) {
+            versions[i] = table.getTokenVersion(id, slots[i]);
+            cards[i] = table.getCardInSlot(slots[i]);
+            // the card was replaced (and the token removed) since the token was placed
+            if (cards[i] == Table.EMPTY || table.getSlotVersion(slots[i]) != versions[i]) return;
         }
+        awaitingVerdict = true;
+        if (Metrics.enabled()) Metrics.claims.increment();
+        dealer.submitedSet(id, slots, cards, versions);
+    }
+
+    /**
+     * Freezes the player for the given time.
+     *
+     * @param millis - the freeze time in milliseconds.
+     */
+    private void freeze(long millis) {
+        if (millis <= 0) return;
+        long now = System.currentTimeMillis();
+        frozenSince = now;
+        frozenUntil = now + millis;
+    }
+
+    /**
+     * @param now - the current time.
+     * @return    - the remaining freeze time of the player in milliseconds (0 if not frozen).
+     */
+    long getFreezeMillis(long now) {
+        return Math.max(0, frozenUntil - now);
+    }
+
+    /**
+     * Restores the score and the freeze of the player from a snapshot of the game, before the game starts.
+     *
+     * @param score        - the score.
+     * @param freezeMillis - the remaining freeze time in milliseconds.
+     */
+    void restore(int score, long freezeMillis) {
+        this.score = score;
+        env.ui.setScore(id, score);
+        freeze(freezeMillis);
     }
 
     /**
@@ -172,17 +315,28 @@ public class Player implements Runnable {
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        // TODO implement
-
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         env.ui.setScore(id, ++score);
+        freeze(env.config.pointFreezeMillis);
+        awaitingVerdict = false;
+        wakeup.signal();
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        // TODO implement
+        freeze(env.config.penaltyFreezeMillis);
+        awaitingVerdict = false;
+        wakeup.signal();
+    }
+
+    /**
+     * Called when the dealer dismissed the player's claim without judging it (i.e. some of the cards were replaced).
+     */
+    public void claimDismissed() {
+        awaitingVerdict = false;
+        wakeup.signal();
     }
 
     public int getScore() {
@@ -194,7 +348,16 @@ public class Player implements Runnable {
     }
 
     public void removeAllTokens() {
-        tokensPlaced = 0;
+        clearQueue();
+    }
+
+    /**
+     * Drops the pending key presses.
+     */
+    private void clearQueue() {
         queue.clear();
+        if (Metrics.enabled())
+            for (int slot = 0; slot < pressTimes.length(); ++slot)
+                pressTimes.set(slot, 0);
     }
 }
@@ -0,0 +1,191 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.UtilImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Replays a game from its journal (see Journal) at full speed: a Dealer seeded with the journaled seed judges the
+ * journaled claims and makes the journaled reshuffle decisions, in the journaled steps, with no threads, clocks or table
+ * delays. After every step the cards on the table and the scores of the players are compared with the journal, so a
+ * replay reproduces the game and reports where it diverged from the journal (if ever).
+ */
+public final class Replay {
+
+    /**
+     * The number of events and dealer steps replayed.
+     */
+    public final int events;
+    public final int steps;
+
+    /**
+     * The number of steps after which the table or the scores differed from the journal.
+     */
+    public final int divergences;
+
+    /**
+     * The final scores of the players in the replay.
+     */
+    public final int[] scores;
+
+    /**
+     * The duration of the journaled game, and of its replay, in milliseconds.
+     */
+    public final long gameMillis;
+    public final double replayMillis;
+
+    private Replay(int events, int steps, int divergences, int[] scores, long gameMillis, double replayMillis) {
+        this.events = events;
+        this.steps = steps;
+        this.divergences = divergences;
+        this.scores = scores;
+        this.gameMillis = gameMillis;
+        this.replayMillis = replayMillis;
+    }
+
+    /**
+     * Replays a journal.
+     *
+     * @param path   - the journal file.
+     * @param logger - the logger of the replayed game.
+     * @return       - the outcome of the replay.
+     * @throws IOException - if the journal cannot be read, is not a journal of this version, or is malformed.
+     */
+    public static Replay run(Path path, Logger logger) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() < Journal.HEADER_SIZE || in.getInt() != Journal.MAGIC)
+            throw new IOException(path + " is not a game journal.");
+        int version = in.getInt();
+        if (version != Journal.VERSION)
+            throw new IOException(path + " is a journal of version " + version + ", expected " + Journal.VERSION + ".");
+
+        Properties properties = new Properties();
+        properties.setProperty("RandomSeed", Long.toString(in.getLong()));
+        in.getLong(); // the start time
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(in.getInt()));
+        properties.setProperty("FeatureSize", Integer.toString(in.getInt()));
+        properties.setProperty("FeatureCount", Integer.toString(in.getInt()));
+        properties.setProperty("Rows", Integer.toString(in.getInt()));
+        properties.setProperty("Columns", Integer.toString(in.getInt()));
+        properties.setProperty("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new RecordingUserInterface(config, false), new UtilImpl(config));
+
+        long start = System.nanoTime();
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        // the state of the journaled game after the last journaled event
+        int[] slotToCard = new int[config.tableSize];
+        Arrays.fill(slotToCard, Table.EMPTY);
+        int[] scores = new int[players.length];
+
+        int events = 0, steps = 0, divergences = 0;
+        long gameMillis = 0;
+        while (in.remaining() >= Journal.RECORD_SIZE) {
+            byte type = in.get();
+            int player = in.get() & 0xff;
+            int slot = in.getShort();
+            int card = in.getInt();
+            gameMillis = in.getInt();
+            ++events;
+            if (player >= players.length || slot < 0 || slot >= config.tableSize)
+                throw malformed(path, in, "player " + player + " or slot " + slot + " out of range");
+
+            switch (type) {
+                case Journal.DEAL: slotToCard[slot] = card; break;
+                case Journal.REMOVE: slotToCard[slot] = Table.EMPTY; break;
+                case Journal.TOKEN_PLACED: table.placeToken(player, slot); break;
+                case Journal.TOKEN_REMOVED: table.removeToken(player, slot); break;
+                case Journal.CLAIM:
+                    int[] slots = new int[config.featureSize];
+                    int[] cards = new int[config.featureSize];
+                    int[] versions = new int[config.featureSize];
+                    for (int i = 0; i < slots.length; ++i, events += 2) {
+                        slots[i] = claimSlot(in, Journal.CLAIM_CARD, player, config, path);
+                        cards[i] = in.getInt();
+                        in.getInt(); // the time
+                        if (claimSlot(in, Journal.CLAIM_VERSION, player, config, path) != slots[i])
+                            throw malformed(path, in, "the version of another slot in a claim of player " + player);
+                        versions[i] = in.getInt();
+                        in.getInt();
+                    }
+                    dealer.submitedSet(player, slots, cards, versions);
+                    break;
+                case Journal.POINT: ++scores[player]; break;
+                case Journal.STEP:
+                    dealer.replayStep(card != 0);
+                    ++steps;
+                    if (!matches(table, slotToCard, players, scores)) ++divergences;
+                    break;
+                case Journal.PENALTY: // penalties and dismissed claims change nothing but the freezes
+                case Journal.DISMISSED:
+                case Journal.GAME_OVER:
+                    break;
+                default:
+                    throw malformed(path, in, "an event of type " + type + " out of a claim");
+            }
+            if (type == Journal.GAME_OVER) break;
+        }
+
+        int[] finalScores = new int[players.length];
+        for (int i = 0; i < players.length; i++)
+            finalScores[i] = players[i].getScore();
+        return new Replay(events, steps, divergences, finalScores, gameMillis, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Reads the type, the player and the slot of an event of a claim (the card and the time are left to read).
+     *
+     * @param type   - the expected type of the event.
+     * @param player - the player who claimed the set.
+     * @return       - the slot of the event.
+     * @throws IOException - if the event is not of the type or of the player, or its slot is out of range.
+     */
+    private static int claimSlot(ByteBuffer in, byte type, int player, Config config, Path path) throws IOException {
+        if (in.remaining() < Journal.RECORD_SIZE)
+            throw malformed(path, in, "a claim of player " + player + " is incomplete");
+        byte actualType = in.get();
+        int actualPlayer = in.get() & 0xff;
+        int slot = in.getShort();
+        if (actualType != type || actualPlayer != player)
+            throw malformed(path, in, "an event of type " + actualType + " and player " + actualPlayer
+                    + " in a claim of player " + player);
+        if (slot < 0 || slot >= config.tableSize)
+            throw malformed(path, in, "slot " + slot + " out of range in a claim of player " + player);
+        return slot;
+    }
+
+    /**
+     * @return - the exception for a malformed journal, with the position of the event.
+     */
+    private static IOException malformed(Path path, ByteBuffer in, String what) {
+        int event = (in.position() - Journal.HEADER_SIZE - 1) / Journal.RECORD_SIZE;
+        return new IOException(path + " is malformed: " + what + " (event " + event + ").");
+    }
+
+    /**
+     * @return - true iff the cards on the table and the scores of the players are the journaled ones.
+     */
+    private static boolean matches(Table table, int[] slotToCard, Player[] players, int[] scores) {
+        for (int slot = 0; slot < slotToCard.length; ++slot) {
+            if (table.getCardInSlot(slot) != slotToCard[slot]) return false;
+        }
+        for (int i = 0; i < players.length; i++)
+            if (players[i].getScore() != scores[i]) return false;
+        return true;
+    }
+}
@@ -0,0 +1,253 @@
+package bguspl.set.ex;
+
+import bguspl.set.FeatureTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An incrementally maintained index of the legal sets among a changing collection of cards. Adding or removing a
+ * card only inspects the sets the card takes part in, so the index never rescans the whole collection.
+ *
+ * @inv count() == the number of legal sets among the cards in the index
+ */
+class SetIndex {
+
+    /**
+     * The features of the cards in the deck.
+     */
+    private final FeatureTable features;
+
+    /**
+     * The number of cards in a set.
+     */
+    private final int setSize;
+
+    /**
+     * True iff the sets themselves are kept (otherwise only their number is maintained).
+     */
+    private final boolean retainSets;
+
+    /**
+     * The cards in the index (in the first size places).
+     */
+    private final int[] members;
+    private int size;
+
+    /**
+     * The index of each card in members (-1 if the card is not in the index).
+     */
+    private final int[] position;
+
+    /**
+     * The number of legal sets among the cards in the index.
+     */
+    private int count;
+
+    /**
+     * The sorted cards of each set (setSize entries per set), valid only if retainSets is true.
+     */
+    private int[] sets;
+
+    /**
+     * The retained sets each card takes part in (the first cardSetCount[card] places of cardSets[card], null until the
+     * card takes part in a set), so removing a card removes its sets without scanning the others.
+     */
+    private final int[][] cardSets;
+    private final int[] cardSetCount;
+
+    /**
+     * Scratch buffers for enumerating candidate sets when setSize != 3.
+     */
+    private final int[] combination;
+    private final int[] candidate;
+
+    /**
+     * @param features   - the features of the cards in the deck.
+     * @param retainSets - true iff the sets should be kept (otherwise only their number is maintained).
+     */
+    SetIndex(FeatureTable features, boolean retainSets) {
+        this.features = features;
+        this.retainSets = retainSets;
+        setSize = features.featureSize;
+        members = new int[features.deckSize];
+        position = new int[features.deckSize];
+        Arrays.fill(position, -1);
+        sets = new int[retainSets ? setSize * 16 : 0];
+        cardSets = new int[retainSets ? features.deckSize : 0][];
+        cardSetCount = new int[retainSets ? features.deckSize : 0];
+        combination = new int[setSize];
+        candidate = new int[setSize];
+    }
+
+    /**
+     * Adds a card to the index along with all the sets it completes.
+     *
+     * @param card - the card id.
+     * @return     - true iff the card was not in the index.
+     */
+    synchronized boolean add(int card) {
+        if (position[card] >= 0) return false;
+        count += visitSetsOf(card, true);
+        position[card] = size;
+        members[size++] = card;
+        return true;
+    }
+
+    /**
+     * Removes a card from the index along with all the sets it took part in.
+     *
+     * @param card - the card id.
+     * @return     - true iff the card was in the index.
+     */
+    synchronized boolean remove(int card) {
+        int index = position[card];
+        if (index < 0) return false;
+        int last = members[--size];
+        members[index] = last;
+        position[last] = index;
+        position[card] = -1;
+
+        if (retainSets) {
+            while (cardSetCount[card] > 0)
+                removeSet(cardSets[card][0]);
+        } else count -= visitSetsOf(card, false);
+        return true;
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - true iff the card is in the index.
+     */
+    synchronized boolean contains(int card) {
+        return position[card] >= 0;
+    }
+
+    /**
+     * @return - the number of legal sets among the cards in the index.
+     */
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return - the number of cards in the index.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param max - the maximum number of sets to return.
+     * @return    - copies of up to max of the sets in the index (each one is sorted). Valid only if the sets are retained.
+     */
+    synchronized List<int[]> sets(int max) {
+        int n = Math.min(max, count);
+        List<int[]> result = new ArrayList<>(n);
+        for (int set = 0; set < n; ++set)
+            result.add(Arrays.copyOfRange(sets, set * setSize, (set + 1) * setSize));
+        return result;
+    }
+
+    /**
+     * Removes all the cards from the index.
+     */
+    synchronized void clear() {
+        for (int i = 0; i < size; ++i) {
+            position[members[i]] = -1;
+            if (retainSets) cardSetCount[members[i]] = 0;
+        }
+        size = 0;
+        count = 0;
+    }
+
+    /**
+     * Counts the sets made of the card and setSize - 1 of the cards in the index (the card itself must not be in it).
+     *
+     * @param card  - the card id.
+     * @param store - true iff the sets found should be stored (only if retainSets is true).
+     * @return      - the number of sets found.
+     */
+    private int visitSetsOf(int card, boolean store) {
+        if (setSize == 3) {
+            // every pair has a single completing card, each set is visited from its member with the smaller position
+            int found = 0;
+            for (int i = 0; i < size; ++i) {
+                int other = members[i];
+                int third = features.completeSet(card, other);
+                if (position[third] > i) {
+                    if (store) {
+                        candidate[0] = card;
+                        candidate[1] = other;
+                        candidate[2] = third;
+                        storeSet(count + found, candidate);
+                    }
+                    ++found;
+                }
+            }
+            return found;
+        }
+
+        int r = setSize - 1;
+        if (size < r) return 0;
+        int found = 0;
+        for (int i = 0; i < r; ++i) combination[i] = i;
+        candidate[r] = card;
+        while (combination[r - 1] < size) {
+            for (int i = 0; i < r; ++i) candidate[i] = members[combination[i]];
+            if (features.isSet(candidate)) {
+                if (store) storeSet(count + found, candidate);
+                ++found;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == size - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return found;
+    }
+
+    /**
+     * Stores the cards of a set (sorted) in the given place of the retained sets.
+     */
+    private void storeSet(int set, int[] cards) {
+        if (!retainSets) return;
+        if ((set + 1) * setSize > sets.length)
+            sets = Arrays.copyOf(sets, sets.length * 2);
+        System.arraycopy(cards, 0, sets, set * setSize, setSize);
+        Arrays.sort(sets, set * setSize, (set + 1) * setSize);
+        for (int card : cards) {
+            int[] ofCard = cardSets[card];
+            if (ofCard == null) ofCard = cardSets[card] = new int[4];
+            else if (cardSetCount[card] == ofCard.length)
+                ofCard = cardSets[card] = Arrays.copyOf(ofCard, 2 * ofCard.length);
+            ofCard[cardSetCount[card]++] = set;
+        }
+    }
+
+    /**
+     * Removes a retained set, and moves the last set into its place.
+     */
+    private void removeSet(int set) {
+        for (int i = set * setSize; i < (set + 1) * setSize; ++i)
+            replaceSet(sets[i], set, -1);
+        int last = --count;
+        if (last == set) return;
+        System.arraycopy(sets, last * setSize, sets, set * setSize, setSize);
+        for (int i = set * setSize; i < (set + 1) * setSize; ++i)
+            replaceSet(sets[i], last, set);
+    }
+
+    /**
+     * Replaces a set in the sets of a card with another one, or removes it if the other one is -1.
+     */
+    private void replaceSet(int card, int set, int other) {
+        int[] ofCard = cardSets[card];
+        int i = 0;
+        while (ofCard[i] != set) ++i;
+        ofCard[i] = other >= 0 ? other : ofCard[--cardSetCount[card]];
+    }
+}
@@ -0,0 +1,201 @@
+package bguspl.set.ex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The full state of a game at the end of a dealer step: the cards on the table and in the deck, the state of the turn,
+ * and the score, freeze and tokens of every player. The dealer captures a snapshot by copying a few small arrays (the
+ * capture is bounded by the size of the deck, the table and the players' tokens) and a background thread encodes it
+ * and writes it to a file, so a game can be restored after a crash (see Dealer.restore).
+ */
+final class Snapshot {
+
+    static final int MAGIC = 0x53455453; // SETS
+    static final int VERSION = 2;
+
+    final boolean dealing;
+    final long turnElapsed;
+
+    /**
+     * The card in every slot (-1 if none), and the cards in the deck.
+     */
+    final int[] slotToCard;
+    final int[] deck;
+
+    /**
+     * The score, the remaining freeze (in milliseconds) and the slots of the tokens of every player.
+     */
+    final int[] scores;
+    final long[] freezes;
+    final int[][] tokens;
+
+    Snapshot(boolean dealing, long turnElapsed, int[] slotToCard, int[] deck, int[] scores, long[] freezes,
+             int[][] tokens) {
+        this.dealing = dealing;
+        this.turnElapsed = turnElapsed;
+        this.slotToCard = slotToCard;
+        this.deck = deck;
+        this.scores = scores;
+        this.freezes = freezes;
+        this.tokens = tokens;
+    }
+
+    /**
+     * @return - the snapshot in its binary form (cards and slots are shorts).
+     */
+    ByteBuffer encode() {
+        int size = 4 + 4 + 1 + 8 + 4 + 2 * slotToCard.length + 4 + 2 * deck.length + 4;
+        for (int[] slots : tokens)
+            size += 4 + 8 + 4 + 2 * slots.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).put((byte) (dealing ? 1 : 0)).putLong(turnElapsed);
+        buffer.putInt(slotToCard.length);
+        for (int card : slotToCard)
+            buffer.putShort((short) card);
+        buffer.putInt(deck.length);
+        for (int card : deck)
+            buffer.putShort((short) card);
+        buffer.putInt(scores.length);
+        for (int player = 0; player < scores.length; ++player) {
+            buffer.putInt(scores[player]).putLong(freezes[player]).putInt(tokens[player].length);
+            for (int slot : tokens[player])
+                buffer.putShort((short) slot);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param path - the snapshot file.
+     * @return     - the snapshot.
+     * @throws IOException - if the file cannot be read or is not a snapshot of this version.
+     */
+    static Snapshot read(Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if (in.getInt() != MAGIC) throw new IOException(path + " is not a game snapshot.");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException(path + " is a snapshot of version " + version + ", expected " + VERSION + ".");
+            boolean dealing = in.get() != 0;
+            long turnElapsed = in.getLong();
+            int[] slotToCard = new int[in.getInt()];
+            for (int slot = 0; slot < slotToCard.length; ++slot)
+                slotToCard[slot] = in.getShort();
+            int[] deck = new int[in.getInt()];
+            for (int i = 0; i < deck.length; ++i)
+                deck[i] = in.getShort();
+            int players = in.getInt();
+            int[] scores = new int[players];
+            long[] freezes = new long[players];
+            int[][] tokens = new int[players][];
+            for (int player = 0; player < players; ++player) {
+                scores[player] = in.getInt();
+                freezes[player] = in.getLong();
+                tokens[player] = new int[in.getInt()];
+                for (int i = 0; i < tokens[player].length; ++i)
+                    tokens[player][i] = in.getShort();
+            }
+            return new Snapshot(dealing, turnElapsed, slotToCard, deck, scores, freezes, tokens);
+        } catch (RuntimeException e) { // a truncated file or a negative length
+            throw new IOException(path + " is not a valid game snapshot.", e);
+        }
+    }
+
+    /**
+     * Writes the snapshots of a game to its snapshot file, on a background thread shared by all the games. Only the
+     * latest snapshot is written: a snapshot that is replaced before the thread gets to it is skipped. Every snapshot is
+     * written to a temporary file that then replaces the snapshot file atomically, so a crash while writing leaves the
+     * previous snapshot intact.
+     */
+    static final class Writer {
+
+        private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        /**
+         * Stands for "delete the snapshot file" in place of a snapshot.
+         */
+        private static final Snapshot DELETE = new Snapshot(false, 0, null, null, null, null, null);
+
+        private final Logger logger;
+        private final Path path;
+        private final Path temporary;
+
+        /**
+         * The snapshot to write next (null if none).
+         */
+        private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+
+        Writer(Logger logger, Path path) {
+            this.logger = logger;
+            this.path = path;
+            temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        }
+
+        /**
+         * Writes a snapshot in the background (replacing a snapshot that was not written yet).
+         *
+         * @param snapshot - the snapshot.
+         */
+        void offer(Snapshot snapshot) {
+            if (pending.getAndSet(snapshot) == null)
+                executor.execute(this::write);
+        }
+
+        /**
+         * Deletes the snapshot file in the background (once the game is over there is nothing to restore).
+         */
+        void delete() {
+            offer(DELETE);
+        }
+
+        /**
+         * Waits until the snapshots offered so far (by all the games) were written.
+         */
+        static void awaitWrites() throws InterruptedException {
+            try {
+                executor.submit(() -> {}).get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void write() {
+            Snapshot snapshot = pending.getAndSet(null);
+            try {
+                if (snapshot == DELETE) {
+                    Files.deleteIfExists(path);
+                    return;
+                }
+                ByteBuffer buffer = snapshot.encode();
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                    channel.force(false);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Cannot write the snapshot " + path + ".", e);
+            }
+        }
+    }
+}
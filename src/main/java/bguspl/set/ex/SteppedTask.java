@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the steps of a game entity (the dealer, a player or the AI of a player) on a shared executor instead of a
+ * thread of its own. A step returns the time of the next step, like Dealer.step and Player.act do, and the entity is
+ * stepped earlier whenever its wakeup signal is signaled. Steps of the same entity never run concurrently, and a wake
+ * up that arrives during a step is never lost (the entity is stepped again right after it).
+ */
+class SteppedTask implements Runnable {
+
+    /**
+     * The states of the task.
+     */
+    private static final int IDLE = 0;
+    private static final int QUEUED = 1;
+    private static final int RUNNING = 2;
+    private static final int RUNNING_WOKEN = 3;
+    private static final int OVER = 4;
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /**
+     * The executor that runs the steps.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The step of the entity, and the action to run once it returned Dealer.GAME_OVER.
+     */
+    private final LongSupplier step;
+    private final Runnable onGameOver;
+
+    /**
+     * The timer of the next deadline, and the deadline itself (Long.MAX_VALUE if none).
+     */
+    private ScheduledFuture<?> timer;
+    private long timerDeadline = Long.MAX_VALUE;
+
+    /**
+     * The class constructor. The entity is stepped for the first time when it is woken.
+     *
+     * @param executor   - the executor that runs the steps.
+     * @param wakeup     - the wakeup signal of the entity.
+     * @param step       - the step of the entity.
+     * @param onGameOver - called (in the executor) once the step returned Dealer.GAME_OVER.
+     */
+    SteppedTask(ScheduledExecutorService executor, WakeupSignal wakeup, LongSupplier step, Runnable onGameOver) {
+        this.executor = executor;
+        this.step = step;
+        this.onGameOver = onGameOver;
+        wakeup.setListener(this::wake);
+    }
+
+    /**
+     * Steps the entity as soon as possible. Safe to call from any thread.
+     */
+    void wake() {
+        while (true) {
+            int current = state.get();
+            if (current == IDLE) {
+                if (state.compareAndSet(IDLE, QUEUED)) {
+                    submit();
+                    return;
+                }
+            } else if (current == RUNNING) {
+                if (state.compareAndSet(RUNNING, RUNNING_WOKEN)) return;
+            } else return;
+        }
+    }
+
+    @Override
+    public void run() {
+        state.set(RUNNING);
+        long deadline = step.getAsLong();
+        if (deadline == Dealer.GAME_OVER) {
+            state.set(OVER);
+            cancelTimer();
+            onGameOver.run();
+        } else if (deadline <= System.currentTimeMillis() || !state.compareAndSet(RUNNING, IDLE)) {
+            state.set(QUEUED);
+            submit();
+        } else if (deadline != Long.MAX_VALUE)
+            wakeAt(deadline);
+    }
+
+    private void submit() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException ignored) {} // the host was closed
+    }
+
+    /**
+     * Wakes the entity at the deadline, unless it is already woken earlier by the timer.
+     *
+     * @param deadline - the deadline (in System.currentTimeMillis units).
+     */
+    private synchronized void wakeAt(long deadline) {
+        if (deadline >= timerDeadline) return;
+        if (timer != null) timer.cancel(false);
+        timerDeadline = deadline;
+        try {
+            timer = executor.schedule(this::timerExpired, deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {} // the host was closed
+    }
+
+    private void timerExpired() {
+        synchronized (this) {
+            timer = null;
+            timerDeadline = Long.MAX_VALUE;
+        }
+        wake();
+    }
+
+    private synchronized void cancelTimer() {
+        if (timer != null) timer.cancel(false);
+        timer = null;
+        timerDeadline = Long.MAX_VALUE;
+    }
+}
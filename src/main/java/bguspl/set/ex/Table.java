@@ -1,48 +1,129 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.FeatureTable;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
  * This class contains the data that is visible to the player.
  *
- * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ * @inv slotToCard[x] == y iff cardToSlot[y] == x (for y != EMPTY)
  */
 public class Table {
 
+    /**
+     * The value of an empty slot in slotToCard, and of a card that is not on the table in cardToSlot.
+     */
+    public static final int EMPTY = -1;
+
     /**
      * The game environment object.
      */
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
+     */
+    protected final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (EMPTY if none).
+     */
+    protected final int[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The version of every slot, a seqlock of the slot: it is incremented (to an odd value) before the dealer places or
+     * removes the card of the slot and again (to an even value) after, so a reader that reads the version before the
+     * card sees the card of that version or a later one. A reader that reads the same version before and after it reads
+     * a card knows the card did not change in between, without taking a lock. Players do not place tokens on a slot
+     * while its card is being replaced, and every other slot stays open to them meanwhile (there is no board lock).
+     */
+    private final AtomicIntegerArray slotVersions;
+
+    /**
+     * The number of cards on the table (changed by the dealer only).
+     */
+    private volatile int cardCount;
+
+    /**
+     * The tokens on the table, as bitmasks: the slots of every player's tokens (bit i for slot i), and the players that
+     * have tokens on every slot (bit i % 64 of word i / 64 for player i, playerWords words per slot). Tokens are placed
+     * and removed with a CAS on the player's mask followed by one on the slot's mask, and no lock is taken (unless the
+     * game is journaled, see Journal). A token is in the player's mask only while it is in the slot's mask too (except
+     * in the middle of a placement), so clearing a slot by its mask removes all of its tokens.
+     *
+     * @inv tableSize <= 64 (see Config.MAX_TABLE_SIZE)
+     */
+    private final AtomicLongArray playerTokens;
+    private final AtomicLongArray slotPlayers;
+    private final int playerWords;
+
+    /**
+     * The version of the slot (see slotVersions) when every player's token was placed on it, at player * tableSize +
+     * slot. A claim is only valid while the versions of its slots are still the versions of its tokens.
+     */
+    private final AtomicIntegerArray tokenVersions;
+
+    /**
+     * The latest board (see getBoard), and the number of changes of the table so far. A change only takes the next
+     * version: the first reader that finds the board older than the latest version copies the table into a new board,
+     * which replaces the published one unless a later board was published meanwhile, so the published board includes
+     * every change up to its version. A table that nobody reads allocates no boards on the token path.
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    private final AtomicReference<BoardSnapshot> board = new AtomicReference<>();
+    private final AtomicLong changes = new AtomicLong();
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * An immutable copy of slotToCard and its version, replaced by the dealer on every change of the cards (before the
+     * change takes its version, and before the slot is open to tokens again), so the boards published on token changes
+     * share it instead of copying the cards.
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    private volatile Cards boardCards;
+
+    /**
+     * The legal sets among the cards currently on the table (updated on every card placement and removal).
+     */
+    private final SetIndex sets;
+
+    /**
+     * The journal of the game (null if the game is not journaled).
+     */
+    private Journal journal;
 
-    private boolean playersTokens[][];
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if none).
      */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        playersTokens = new boolean[env.config.players][env.config.rows*env.config.columns];
+        slotVersions = new AtomicIntegerArray(slotToCard.length);
+        playerTokens = new AtomicLongArray(env.config.players);
+        playerWords = (env.config.players + Long.SIZE - 1) / Long.SIZE;
+        slotPlayers = new AtomicLongArray(env.config.tableSize * playerWords);
+        tokenVersions = new AtomicIntegerArray(env.config.players * env.config.tableSize);
+        sets = new SetIndex(FeatureTable.of(env.config), true);
+        int cards = 0;
+        for (int card : slotToCard)
+            if (card != EMPTY) {
+                sets.add(card);
+                ++cards;
+            }
+        cardCount = cards;
+        boardCards = new Cards(0, slotToCard.clone());
+        board.set(new BoardSnapshot(0, 0, boardCards.slotToCard, new long[env.config.players]));
     }
     /**
      * Constructor for actual usage.
@@ -51,42 +132,168 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, empty(env.config.tableSize), empty(env.config.deckSize));
+    }
+
+    private static int[] empty(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, EMPTY);
+        return array;
+    }
+
+    /**
+     * @return - a copy of the mapping between a slot and the card placed in it (EMPTY if none).
+     */
+    public int[] getSlotToCard() {
+        int[] cards = new int[slotToCard.length];
+        for (int slot = 0; slot < cards.length; ++slot)
+            cards[slot] = getCardInSlot(slot);
+        return cards;
     }
 
-    public Integer[] getSlotToCard() {
-        return slotToCard;
+    /**
+     * @return - the latest board: an immutable copy of the cards and the tokens on the table, as of the latest change
+     *           of the table (two volatile reads while the table does not change).
+     */
+    public BoardSnapshot getBoard() {
+        BoardSnapshot current = board.get();
+        long version = changes.get();
+        return current.getVersion() >= version ? current : publishBoard(version);
+    }
+
+    /**
+     * Publishes a board that includes the changes of the table up to a version.
+     *
+     * @return - the published board (a later one, if it was published meanwhile).
+     */
+    private BoardSnapshot publishBoard(long version) {
+        BoardSnapshot next = null;
+        for (BoardSnapshot current = board.get(); ; current = board.get()) {
+            if (current.getVersion() >= version) return current;
+            if (next == null) {
+                // the cards are read before and after the tokens, so a token is never paired with the cards before
+                // (or after) its slot was replaced; tokens that are about to be rolled back by placeToken are left out
+                long[] tokens = new long[playerTokens.length()];
+                Cards cards;
+                do {
+                    cards = boardCards;
+                    for (int player = 0; player < tokens.length; ++player)
+                        tokens[player] = playerTokens.get(player) & cards.occupied;
+                } while (cards != boardCards);
+                next = new BoardSnapshot(version, cards.version, cards.slotToCard, tokens);
+            }
+            if (board.compareAndSet(current, next)) return next;
+        }
+    }
+
+    /**
+     * Takes the next version for a change of the cards on the table.
+     */
+    private void cardsChanged() {
+        boardCards = new Cards(boardCards.version + 1, slotToCard.clone()); // only the dealer changes the cards
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Takes the next version for a change of the tokens on the table.
+     */
+    private void tokensChanged() {
+        changes.incrementAndGet();
     }
 
-    public Integer getCardInSlot(int slot) {
+    /**
+     * @param slot - the slot.
+     * @return     - the card in the slot, or EMPTY if the slot is empty.
+     */
+    public int getCardInSlot(int slot) {
+        slotVersions.get(slot); // a volatile read, so the card written before the last version change is seen
         return slotToCard[slot];
     }
 
+    /**
+     * @param slot - the slot.
+     * @return     - the version of the slot: it changes whenever a card is placed in the slot or removed from it, and
+     *               it is odd while the card is being placed or removed.
+     */
+    public int getSlotVersion(int slot) {
+        return slotVersions.get(slot);
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - the slot the card is in, or EMPTY if the card is not on the table.
+     */
+    public int getSlotOfCard(int card) {
+        int slot = cardToSlot[card];
+        // the card is in the slot only if the slot (read after its version) says so
+        return slot != EMPTY && getCardInSlot(slot) == card ? slot : EMPTY;
+    }
+
+    /**
+     * Journals the changes of the cards and of the players' tokens on the table.
+     *
+     * @param journal - the journal of the game.
+     */
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        BoardSnapshot board = getBoard(); // the sets and their slots are found on the same board
+        List<Integer> cards = Arrays.stream(board.getSlotToCard()).filter(card -> card != EMPTY).boxed()
+                .collect(Collectors.toList());
+        env.util.findSets(cards, Integer.MAX_VALUE).forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
+            List<Integer> slots = Arrays.stream(set).mapToObj(board::getSlotOfCard).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
             System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
         });
     }
 
+    /**
+     * Returns up to max of the legal sets of cards that are currently on the table.
+     *
+     * @param max - the maximum number of sets to return.
+     * @return    - a list of up to max sorted arrays of card ids, each one forms a legal set.
+     */
+    public List<int[]> getSets(int max) {
+        return sets.sets(max);
+    }
+
+    /**
+     * @return - the number of legal sets of cards that are currently on the table.
+     */
+    public int countSets() {
+        return sets.count();
+    }
+
+    /**
+     * @return - true iff there is no legal set of cards on the table (i.e. the board is dead).
+     */
+    public boolean isDead() {
+        return sets.count() == 0;
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
      * @return - the number of cards on the table.
      */
     public int countCards() {
-        int cards = 0;
+        return cardCount;
+    }
 
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
+    /**
+     * Sleeps for config.tableDelayMillis (a zero delay does not sleep at all).
+     */
+    private void delay() {
+        if (env.config.tableDelayMillis > 0)
+            try {
+                Thread.sleep(env.config.tableDelayMillis);
+            } catch (InterruptedException ignored) {}
     }
 
     /**
@@ -97,30 +304,42 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
+        slotVersions.incrementAndGet(slot);
+        delay();
 
+        int replaced = slotToCard[slot];
+        if (replaced != EMPTY) {
+            cardToSlot[replaced] = EMPTY;
+            sets.remove(replaced);
+        } else ++cardCount; // the dealer is the only writer
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
-
-        // TODO implement
+        sets.add(card);
+        if (journal != null) journal.record(Journal.DEAL, 0, slot, card);
+        cardsChanged(); // before the slot takes tokens again, so no board has a token on the card without the card
+        slotVersions.incrementAndGet(slot);
         env.ui.placeCard(card,slot);
     }
 
     /**
-     * Removes a card from a grid slot on the table.
+     * Removes a card from a grid slot on the table, with the tokens of all the players on it.
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        // TODO implement
-        Integer card = slotToCard[slot];
-        slotToCard[slot] = null;
-        cardToSlot[card] = null;
+        if (slotToCard[slot] == EMPTY) return;
+        slotVersions.incrementAndGet(slot);
+        delay();
+
+        int card = slotToCard[slot];
+        boolean tokens = clearTokens(slot); // no token is placed on the slot from now on
+        slotToCard[slot] = EMPTY;
+        cardToSlot[card] = EMPTY;
+        --cardCount;
+        sets.remove(card);
+        if (journal != null) journal.record(Journal.REMOVE, 0, slot, card);
+        cardsChanged();
+        slotVersions.incrementAndGet(slot);
+        if (tokens) env.ui.removeTokens(slot);
         env.ui.removeCard(slot);
     }
 
@@ -128,11 +347,35 @@ public class Table {
      * Places a player token on a grid slot.
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
+     * @return       - true iff the token was placed (i.e. the player had no token on the slot, and the slot has a card
+     *                 that is not being replaced).
      */
-    public void placeToken(int player, int slot) {
-        // TODO implement
-        playersTokens[player][slot] = true;
+    public boolean placeToken(int player, int slot) {
+        int version = slotVersions.get(slot);
+        if ((version & 1) != 0 || slotToCard[slot] == EMPTY) return false;
+        long bit = 1L << slot;
+        long tokens;
+        do {
+            tokens = playerTokens.get(player);
+            if ((tokens & bit) != 0) return false;
+        } while (!playerTokens.compareAndSet(player, tokens, tokens | bit));
+        tokenVersions.set(player * env.config.tableSize + slot, version);
+        // after the player's mask, so a concurrent removeTokens(slot) either sees the token or leaves it in place
+        setBit(slotPlayers, slotWord(slot, player), 1L << player);
+        if (journal != null) journal.record(Journal.TOKEN_PLACED, player, slot, 0);
         env.ui.placeToken(player, slot);
+
+        // if the card was replaced meanwhile, the token may have missed the removal of the card's tokens
+        if (slotVersions.get(slot) == version) {
+            tokensChanged();
+            return true;
+        }
+        clearBit(playerTokens, player, bit);
+        clearBit(slotPlayers, slotWord(slot, player), 1L << player);
+        tokensChanged();
+        if (journal != null) journal.record(Journal.TOKEN_REMOVED, player, slot, 0);
+        env.ui.removeToken(player, slot);
+        return false;
     }
 
     /**
@@ -142,16 +385,139 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        // TODO implement
-        playersTokens[player][slot] = false;
+        if (!clearBit(playerTokens, player, 1L << slot)) return false;
+        clearBit(slotPlayers, slotWord(slot, player), 1L << player);
+        tokensChanged();
+        if (journal != null) journal.record(Journal.TOKEN_REMOVED, player, slot, 0);
         env.ui.removeToken(player, slot);
-        return false;
+        return true;
+    }
+
+    /**
+     * Removes the tokens of all the players from a grid slot.
+     * @param slot - the slot from which to remove the tokens.
+     */
+    public void removeTokens(int slot) {
+        clearTokens(slot);
+        tokensChanged();
+        env.ui.removeTokens(slot);
+    }
+
+    /**
+     * Takes the player mask of a slot and removes the tokens of those players from the slot.
+     *
+     * @return - true iff there were tokens on the slot.
+     */
+    private boolean clearTokens(int slot) {
+        long bit = 1L << slot;
+        boolean cleared = false;
+        for (int word = 0; word < playerWords; ++word) {
+            long players = slotPlayers.getAndSet(slot * playerWords + word, 0);
+            cleared |= players != 0;
+            for (; players != 0; players &= players - 1)
+                clearBit(playerTokens, word * Long.SIZE + Long.numberOfTrailingZeros(players), bit);
+        }
+        return cleared;
+    }
+
+    /**
+     * @return - the index in slotPlayers of the word of a slot's player mask that holds the player's bit (the bit is
+     *           1L << player, as shifts only use the low 6 bits).
+     */
+    private int slotWord(int slot, int player) {
+        return slot * playerWords + player / Long.SIZE;
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the slots on which the player has tokens (in ascending order).
+     */
+    public int[] getPlayerTokens(int player) {
+        long tokens = playerTokens.get(player);
+        int[] slots = new int[Long.bitCount(tokens)];
+        for (int i = 0; tokens != 0; tokens &= tokens - 1)
+            slots[i++] = Long.numberOfTrailingZeros(tokens);
+        return slots;
+    }
+
+    /**
+     * @param player - the player id.
+     * @param slot   - a slot on which the player has a token.
+     * @return       - the version of the slot when the token was placed on it.
+     */
+    public int getTokenVersion(int player, int slot) {
+        return tokenVersions.get(player * env.config.tableSize + slot);
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the slots on which the player has tokens, as a bitmask (bit i is set iff there is a token on
+     *                 slot i).
+     */
+    public long getPlayerTokenMask(int player) {
+        return playerTokens.get(player);
+    }
+
+    /**
+     * @return - the slots on which every player has tokens (in ascending order).
+     */
+    public int[][] getTokens() {
+        int[][] tokens = new int[playerTokens.length()][];
+        for (int player = 0; player < tokens.length; ++player)
+            tokens[player] = getPlayerTokens(player);
+        return tokens;
     }
 
     public void removeAllTokens() {
-        playersTokens = new boolean[env.config.players][env.config.rows*env.config.columns];
+        for (int slot = 0; slot < env.config.tableSize; ++slot)
+            clearTokens(slot);
+        tokensChanged();
         env.ui.removeTokens();
     }
 
-    public boolean getPlayerTokenState(int player, int slot) { return playersTokens[player][slot];}
+    public boolean getPlayerTokenState(int player, int slot) {
+        return (playerTokens.get(player) >>> slot & 1) != 0;
+    }
+
+    /**
+     * Sets bits of an element of an atomic array.
+     */
+    private static void setBit(AtomicLongArray masks, int index, long bits) {
+        long mask;
+        do {
+            mask = masks.get(index);
+        } while ((mask & bits) != bits && !masks.compareAndSet(index, mask, mask | bits));
+    }
+
+    /**
+     * Clears bits of an element of an atomic array.
+     *
+     * @return - true iff any of the bits was set.
+     */
+    private static boolean clearBit(AtomicLongArray masks, int index, long bits) {
+        long mask;
+        do {
+            mask = masks.get(index);
+            if ((mask & bits) == 0) return false;
+        } while (!masks.compareAndSet(index, mask, mask & ~bits));
+        return true;
+    }
+
+    /**
+     * The cards on the table as of a change of the cards, and the number of changes of the cards up to it.
+     */
+    private static final class Cards {
+        final long version;
+        final int[] slotToCard;
+        final long occupied; // the slots that have cards (bit i for slot i)
+
+        Cards(long version, int[] slotToCard) {
+            this.version = version;
+            this.slotToCard = slotToCard;
+            long mask = 0;
+            for (int slot = 0; slot < slotToCard.length; ++slot)
+                if (slotToCard[slot] != EMPTY) mask |= 1L << slot;
+            occupied = mask;
+        }
+    }
 }
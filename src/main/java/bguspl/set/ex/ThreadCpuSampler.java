@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measures the CPU time used by every live thread between consecutive samples (e.g. to verify that idle player
+ * threads do not use any CPU). The first sample is taken when the sampler is created, so the first report does not
+ * include the CPU time the threads used before (e.g. to start up).
+ */
+class ThreadCpuSampler {
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The CPU time (in nanoseconds) of each thread at the previous sample, by thread id.
+     */
+    private final Map<Long, Long> previousCpuTimes = new HashMap<>();
+
+    /**
+     * The wall clock time (in System.nanoTime units) of the previous sample.
+     */
+    private long previousSampleTime = System.nanoTime();
+
+    ThreadCpuSampler() {
+        if (!isSupported()) return;
+        if (!threads.isThreadCpuTimeEnabled()) threads.setThreadCpuTimeEnabled(true);
+        for (long id : threads.getAllThreadIds()) {
+            long cpuTime = threads.getThreadCpuTime(id);
+            if (cpuTime >= 0) previousCpuTimes.put(id, cpuTime);
+        }
+    }
+
+    /**
+     * @return - true iff the JVM supports measuring the CPU time of threads.
+     */
+    boolean isSupported() {
+        return threads.isThreadCpuTimeSupported();
+    }
+
+    /**
+     * Takes a sample and formats the CPU time of every thread since the previous sample.
+     *
+     * @return - a report line per thread (sorted by thread name).
+     */
+    String sample() {
+        if (!threads.isThreadCpuTimeEnabled()) threads.setThreadCpuTimeEnabled(true);
+        long now = System.nanoTime();
+        double interval = (now - previousSampleTime) / 1e6;
+        previousSampleTime = now;
+
+        Map<String, String> lines = new TreeMap<>();
+        Map<Long, Long> cpuTimes = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null) continue; // the thread terminated
+            long cpuTime = threads.getThreadCpuTime(info.getThreadId());
+            if (cpuTime < 0) continue;
+            cpuTimes.put(info.getThreadId(), cpuTime);
+
+            double used = (cpuTime - previousCpuTimes.getOrDefault(info.getThreadId(), 0L)) / 1e6;
+            lines.put(info.getThreadName() + "#" + info.getThreadId(), String.format(
+                    "CPU time of thread %s: %.1fms in the last %.0fms (%.1f%% of a core)",
+                    info.getThreadName(), used, interval, 100 * used / interval));
+        }
+        previousCpuTimes.clear();
+        previousCpuTimes.putAll(cpuTimes);
+        return String.join(System.lineSeparator(), lines.values());
+    }
+}
@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks a single waiting thread until a deadline passes or another thread signals it. A signal that arrives while the
+ * thread is not waiting is kept, so the next wait returns immediately (i.e. signals are never lost).
+ * <p>
+ * When nobody waits on the signal (e.g. the game is hosted by a GameHost), a listener can be set instead, which is
+ * called on every signal.
+ */
+class WakeupSignal {
+
+    /**
+     * True iff the signal was raised and not consumed by a wait yet.
+     */
+    private final AtomicBoolean raised = new AtomicBoolean();
+
+    /**
+     * The thread waiting for the signal (null if none).
+     */
+    private volatile Thread waiter;
+
+    /**
+     * Called on every signal instead of raising it (null if none).
+     */
+    private volatile Runnable listener;
+
+    /**
+     * Raises the signal and wakes the waiting thread (if any). Safe to call from any thread.
+     */
+    void signal() {
+        Runnable listener = this.listener;
+        if (listener != null) {
+            listener.run();
+            return;
+        }
+        if (raised.compareAndSet(false, true)) {
+            Thread thread = waiter;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Parks the current thread until the signal is raised, the deadline passes or the thread is interrupted.
+     *
+     * @param deadline - the deadline (in System.currentTimeMillis units), Long.MAX_VALUE for none.
+     * @return         - true iff the signal was raised (it is consumed).
+     */
+    boolean await(long deadline) {
+        waiter = Thread.currentThread();
+        try {
+            while (!raised.get() && !Thread.currentThread().isInterrupted()) {
+                if (deadline == Long.MAX_VALUE) LockSupport.park(this);
+                else if (System.currentTimeMillis() < deadline) LockSupport.parkUntil(this, deadline);
+                else break;
+            }
+            return raised.getAndSet(false);
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Sets the listener that is called on every signal from now on (the signal is not raised anymore).
+     *
+     * @param listener - the listener.
+     */
+    void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,75 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    private static AsyncLogHandler handler(ByteArrayOutputStream out, int capacity) {
+        AsyncLogHandler handler = new AsyncLogHandler(out, capacity);
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return formatMessage(record) + "\n";
+            }
+        });
+        return handler;
+    }
+
+    @Test
+    void close_WritesAllRecordsOfEachThreadInOrder() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = handler(out, 1 << 16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; ++i) {
+                    LogRecord record = new LogRecord(Level.INFO, "{0} {1}");
+                    record.setParameters(new Object[]{thread, i});
+                    handler.publish(record);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        handler.close();
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4000, lines.length);
+        int[] next = new int[threads.length];
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            int thread = Integer.parseInt(fields[0]);
+            assertEquals(next[thread]++, Integer.parseInt(fields[1].replace(",", "")));
+        }
+    }
+
+    @Test
+    void publish_DropsRecordsWhenFullAndIgnoresFilteredLevels() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = handler(out, 4);
+        handler.setLevel(Level.INFO);
+        handler.publish(new LogRecord(Level.FINE, "filtered"));
+        synchronized (handler) { // holds the writer, so the ring buffer fills up
+            for (int i = 0; i < 10; ++i)
+                handler.publish(new LogRecord(Level.INFO, "record " + i));
+        }
+        handler.close();
+
+        String log = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(log.startsWith("record 0\nrecord 1\nrecord 2\nrecord 3\n"));
+        assertTrue(log.contains("[6 log records were dropped]"));
+        assertFalse(log.contains("filtered"));
+    }
+}
@@ -0,0 +1,59 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardAtlasTest {
+
+    private final Config config = new Config(Logger.getAnonymousLogger(), new Properties());
+
+    @Test
+    void of_LoadsSmallDeckAndIsShared() {
+        CardAtlas atlas = CardAtlas.of(config);
+        assertSame(atlas, CardAtlas.of(new Config(Logger.getAnonymousLogger(), new Properties())));
+        assertEquals(config.deckSize, atlas.loadedCards());
+        assertTrue(atlas.heapBytes() >= 4L * config.deckSize * config.cellWidth * config.cellHeight);
+    }
+
+    @Test
+    void load_LoadsLazily() throws InterruptedException {
+        CardAtlas atlas = new CardAtlas(config, true);
+        assertEquals(0, atlas.loadedCards());
+        long emptyBytes = atlas.heapBytes();
+
+        // a card that was not loaded yet is drawn as the empty card, without decoding it
+        BufferedImage cell = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = cell.createGraphics();
+        atlas.draw(g, 40, 0, 0);
+        assertEquals(0, atlas.loadedCards());
+        int[] placeholder = cell.getRGB(0, 0, config.cellWidth, config.cellHeight, null, 0, config.cellWidth);
+
+        CountDownLatch loaded = new CountDownLatch(1);
+        atlas.load(40, loaded::countDown);
+        atlas.load(40, loaded::countDown); // loaded once only
+        assertTrue(loaded.await(10, TimeUnit.SECONDS));
+        assertEquals(1, atlas.loadedCards());
+        assertTrue(atlas.heapBytes() > emptyBytes);
+        atlas.draw(g, 40, 0, 0);
+        int[] card = cell.getRGB(0, 0, config.cellWidth, config.cellHeight, null, 0, config.cellWidth);
+
+        atlas.draw(g, CardAtlas.EMPTY_CARD, 0, 0);
+        g.dispose();
+        assertEquals(1, atlas.loadedCards());
+        int[] empty = cell.getRGB(0, 0, config.cellWidth, config.cellHeight, null, 0, config.cellWidth);
+        assertEquals(Arrays.hashCode(placeholder), Arrays.hashCode(empty));
+        assertNotEquals(Arrays.hashCode(card), Arrays.hashCode(empty));
+    }
+}
@@ -0,0 +1,143 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A stand-alone load test of the game server: opens many loopback connections from a single thread (with a Selector),
+ * and every remote player selects a random slot every few milliseconds. A remote player reconnects when its game is
+ * over. Reports the games, messages and bytes received per second. Unless a port is given, an in-process server hosts
+ * games of 2 remote players (and no computer players).
+ * Run with: java -cp target/classes:target/test-classes bguspl.set.GameServerLoadBenchmark [connections] [seconds] [port]
+ */
+public class GameServerLoadBenchmark {
+
+    private static final long PRESS_INTERVAL_MILLIS = 5;
+
+    private static double games;
+    private static long messages;
+    private static long bytes;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        GameServer server = null;
+        int port;
+        if (args.length > 2) port = Integer.parseInt(args[2]);
+        else {
+            Properties properties = new Properties();
+            properties.put("HumanPlayers", "2");
+            properties.put("ComputerPlayers", "0");
+            properties.put("TurnTimeoutSeconds", "-1");
+            properties.put("PointFreezeSeconds", "0");
+            properties.put("PenaltyFreezeSeconds", "0");
+            Logger logger = Logger.getLogger("SetGameLogger.loadtest");
+            logger.setLevel(Level.WARNING);
+            server = new GameServer(logger, properties, 0, Runtime.getRuntime().availableProcessors(), 10);
+            new Thread(server, "server").start();
+            port = server.getPort();
+        }
+
+        InetSocketAddress address = new InetSocketAddress("localhost", port);
+        SplittableRandom random = new SplittableRandom(1);
+        ByteBuffer key = ByteBuffer.allocate(1);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections; ++i)
+                connect(selector, address);
+
+            long start = System.currentTimeMillis();
+            long end = start + seconds * 1000;
+            long nextPress = start;
+            while (System.currentTimeMillis() < end) {
+                selector.select(Math.max(1, nextPress - System.currentTimeMillis()));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey selected = keys.next();
+                    keys.remove();
+                    boolean open;
+                    try {
+                        open = read(selected);
+                    } catch (IOException e) {
+                        open = false;
+                    }
+                    if (!open) {
+                        selected.cancel();
+                        selected.channel().close();
+                        connect(selector, address);
+                    }
+                }
+
+                if (System.currentTimeMillis() >= nextPress) {
+                    nextPress += PRESS_INTERVAL_MILLIS;
+                    for (SelectionKey connection : selector.keys()) {
+                        RemotePlayer player = (RemotePlayer) connection.attachment();
+                        if (!connection.isValid() || player.tableSize == 0) continue;
+                        key.clear();
+                        key.put(0, (byte) random.nextInt(player.tableSize));
+                        try {
+                            ((SocketChannel) connection.channel()).write(key);
+                        } catch (IOException e) { // the game is over, the connection is replaced once it is read
+                            player.tableSize = 0;
+                        }
+                    }
+                }
+            }
+
+            double elapsed = (System.currentTimeMillis() - start) / 1000.0;
+            System.out.printf("%d connections: %.1f games/second, %.0f messages/second, %.0f KB/second%n",
+                    connections, games / elapsed, messages / elapsed, bytes / elapsed / 1024);
+            for (SelectionKey connection : selector.keys())
+                connection.channel().close();
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+
+    private static void connect(Selector selector, InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new RemotePlayer());
+    }
+
+    /**
+     * Reads and counts the messages of a remote player.
+     *
+     * @return - false iff the server closed the connection.
+     */
+    private static boolean read(SelectionKey selected) throws IOException {
+        RemotePlayer player = (RemotePlayer) selected.attachment();
+        ByteBuffer inbox = player.inbox;
+        int count = ((SocketChannel) selected.channel()).read(inbox);
+        if (count < 0) return false;
+        bytes += count;
+
+        inbox.flip();
+        for (int size = NetworkUserInterface.messageSize(inbox); size > 0; size = NetworkUserInterface.messageSize(inbox)) {
+            byte type = inbox.get(inbox.position());
+            if (type == NetworkUserInterface.WELCOME) {
+                player.players = inbox.getShort(inbox.position() + 3);
+                player.tableSize = inbox.getShort(inbox.position() + 5);
+            } else if (type == NetworkUserInterface.WINNERS)
+                games += 1.0 / player.players; // every remote player of the game receives the winners
+            ++messages;
+            inbox.position(inbox.position() + size);
+        }
+        inbox.compact();
+        return true;
+    }
+
+    private static class RemotePlayer {
+        final ByteBuffer inbox = ByteBuffer.allocate(1 << 16);
+        int players;
+        int tableSize;
+    }
+}
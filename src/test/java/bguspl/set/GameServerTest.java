@@ -0,0 +1,83 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+
+    @Test
+    void remotePlayer_PlaysCompleteGame() throws Exception {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        properties.put("TurnTimeoutSeconds", "-1");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("Hints", "False");
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.WARNING);
+
+        Thread serverThread;
+        try (GameServer server = new GameServer(logger, properties, 0, 2, 5)) {
+            serverThread = new Thread(server, "server");
+            serverThread.start();
+
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()))) {
+                ByteBuffer inbox = ByteBuffer.allocate(1 << 16);
+                int[] scores = new int[2];
+                int placed = 0;
+                int[] winners = null;
+                boolean welcomed = false;
+                while (channel.read(inbox) >= 0) {
+                    inbox.flip();
+                    for (int size = NetworkUserInterface.messageSize(inbox); size > 0;
+                         size = NetworkUserInterface.messageSize(inbox)) {
+                        int start = inbox.position();
+                        byte type = inbox.get();
+                        if (!welcomed) {
+                            assertEquals(NetworkUserInterface.WELCOME, type);
+                            assertEquals(0, inbox.getShort());
+                            assertEquals(2, inbox.getShort());
+                            assertEquals(12, inbox.getShort());
+                            welcomed = true;
+                        } else if (type == NetworkUserInterface.PLACE_CARD) {
+                            // select the slots of the first deal (the game cannot be over before the deal ends)
+                            if (++placed <= 12)
+                                channel.write(ByteBuffer.wrap(new byte[]{(byte) inbox.getShort(start + 3)}));
+                        } else if (type == NetworkUserInterface.SCORE)
+                            scores[inbox.getShort()] = inbox.getInt();
+                        else if (type == NetworkUserInterface.WINNERS) {
+                            winners = new int[inbox.getShort()];
+                            for (int i = 0; i < winners.length; ++i)
+                                winners[i] = inbox.getShort();
+                        }
+                        inbox.position(start + size);
+                    }
+                    inbox.compact();
+                }
+
+                assertTrue(welcomed);
+                assertTrue(placed >= 12);
+                assertTrue(winners != null && winners.length > 0);
+                int maxScore = Math.max(scores[0], scores[1]);
+                for (int winner : winners)
+                    assertEquals(maxScore, scores[winner]);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        serverThread.join(10000); // the server was closed at the end of the block
+        assertFalse(serverThread.isAlive());
+    }
+}
@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadlessTest {
+
+    @Test
+    void play_CompleteGame() {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "2");
+        properties.put("RandomSeed", "3");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, Headless.headlessProperties(properties));
+        assertEquals(0, config.humanPlayers);
+        assertEquals(0, config.tableDelayMillis);
+
+        RecordingUserInterface ui = new RecordingUserInterface(config, true);
+        int[] scores = Headless.play(new Env(logger, config, ui, new UtilImpl(config)));
+
+        // at least a third of the deck must have been collected before no set was left
+        assertTrue(Arrays.stream(scores).sum() * 3 >= config.deckSize / 3);
+        for (int player = 0; player < scores.length; ++player)
+            assertEquals(scores[player], ui.getScore(player));
+
+        int maxScore = Arrays.stream(scores).max().getAsInt();
+        assertNotNull(ui.getWinners());
+        for (int winner : ui.getWinners())
+            assertEquals(maxScore, scores[winner]);
+        assertEquals(RecordingUserInterface.EventType.ANNOUNCE_WINNER, ui.eventType(ui.eventCount() - 1));
+    }
+
+    @Test
+    void recordingUserInterface_RecordsCalls() {
+        Config config = new Config(Logger.getAnonymousLogger(), new Properties());
+        RecordingUserInterface ui = new RecordingUserInterface(config, true);
+        ui.placeCard(7, 3);
+        ui.setCountdown(Long.MAX_VALUE, true);
+
+        assertEquals(2, ui.eventCount());
+        assertEquals(RecordingUserInterface.EventType.PLACE_CARD, ui.eventType(0));
+        assertArrayEquals(new int[]{7, 3}, new int[]{ui.eventArgument(0, 0), ui.eventArgument(0, 1)});
+        assertEquals(Integer.MAX_VALUE, ui.eventArgument(1, 0));
+        ui.clearEvents();
+        assertEquals(0, ui.eventCount());
+    }
+}
@@ -0,0 +1,62 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void histogram_Percentiles() {
+        Histogram histogram = new Histogram("us");
+        for (int value = 1; value <= 1000; ++value)
+            histogram.record(value);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(7, histogram.percentile(0.7));
+        long p50 = histogram.getP50();
+        assertTrue(p50 <= 500 && p50 >= 500 * 7 / 8, "p50 was " + p50);
+        long p99 = histogram.getP99();
+        assertTrue(p99 <= 990 && p99 >= 990 * 7 / 8, "p99 was " + p99);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getP99());
+    }
+
+    @Test
+    void enable_CollectsGameMetricsOverJmx() throws Exception {
+        Metrics.enable();
+        long games = Metrics.gamesPlayed.sum();
+        long legalSets = Metrics.legalSets.sum();
+
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "2");
+        properties.put("RandomSeed", "5");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, Headless.headlessProperties(properties));
+        int[] scores = Headless.play(new Env(logger, config, new RecordingUserInterface(config, false),
+                new UtilImpl(config)));
+
+        assertEquals(games + 1, Metrics.gamesPlayed.sum());
+        assertEquals(legalSets + Arrays.stream(scores).sum(), Metrics.legalSets.sum());
+        assertTrue(Metrics.claimToVerdict.getCount() > 0);
+        assertTrue(Metrics.keyPressToToken.getCount() > 0);
+        assertTrue(Metrics.cardsDealt.sum() >= config.tableSize);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(Metrics.gamesPlayed.sum(), server.getAttribute(new ObjectName("bguspl.set:type=Counters"), "GamesPlayed"));
+        assertEquals(Metrics.claimToVerdict.getCount(),
+                server.getAttribute(new ObjectName("bguspl.set:type=Histogram,name=ClaimToVerdict"), "Count"));
+    }
+}
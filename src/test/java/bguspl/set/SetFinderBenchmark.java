@@ -0,0 +1,65 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A stand-alone benchmark of the parallel set search. For every deck size (3 to 7 features of size 3, i.e. 27 to 2187
+ * cards) it times finding all the sets and finding a single set in half a shuffled deck, using pools of 1, 2, 4... up
+ * to the number of available cores.
+ * Run with: java -cp target/classes:target/test-classes bguspl.set.SetFinderBenchmark [maxFeatureCount]
+ */
+public class SetFinderBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int maxFeatureCount = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%-6s %-8s %-8s %14s %14s%n", "cards", "threads", "speedup", "all sets (ms)", "one set (us)");
+        for (int featureCount = 3; featureCount <= maxFeatureCount; ++featureCount) {
+            Properties properties = new Properties();
+            properties.put("FeatureSize", "3");
+            properties.put("FeatureCount", Integer.toString(featureCount));
+            FeatureTable features = FeatureTable.of(new Config(Logger.getAnonymousLogger(), properties));
+
+            List<Integer> shuffled = IntStream.range(0, features.deckSize).boxed().collect(Collectors.toList());
+            Collections.shuffle(shuffled, new Random(featureCount));
+            int[] deck = shuffled.stream().mapToInt(Integer::intValue).toArray();
+            int[] half = new ArrayList<>(shuffled.subList(0, deck.length / 2)).stream().mapToInt(Integer::intValue).toArray();
+
+            double singleThreaded = 0;
+            for (int threads = 1; threads <= cores; threads = threads * 2 > cores && threads < cores ? cores : threads * 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelSetFinder finder = new ParallelSetFinder(features, pool);
+                double all = time(() -> finder.findSets(deck, Integer.MAX_VALUE)) / 1e6;
+                double one = time(() -> finder.findSets(half, 1)) / 1e3;
+                pool.shutdown();
+
+                if (threads == 1) singleThreaded = all;
+                System.out.printf("%-6d %-8d %-8.2f %14.3f %14.1f%n", deck.length, threads, singleThreaded / all, all, one);
+            }
+        }
+    }
+
+    /**
+     * @return - the average time (in nanoseconds) of the measured runs.
+     */
+    private static double time(Runnable runnable) {
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+            runnable.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; ++i)
+            runnable.run();
+        return (System.nanoTime() - start) / (double) MEASURED_ROUNDS;
+    }
+}
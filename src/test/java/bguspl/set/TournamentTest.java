@@ -0,0 +1,53 @@
+package bguspl.set;
+
+import bguspl.set.ex.GameHost;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest {
+
+    @Test
+    void combinations_AllValuesOfEverySweep() {
+        Properties base = new Properties();
+        base.setProperty("Rows", "3");
+        Map<String, String[]> sweeps = new LinkedHashMap<>();
+        sweeps.put("PenaltyFreezeSeconds", new String[]{"0", "1", "3"});
+        sweeps.put("ComputerPlayers", new String[]{"2", "4"});
+
+        List<Properties> combinations = Tournament.combinations(base, sweeps);
+        assertEquals(6, combinations.size());
+        assertEquals("0", combinations.get(0).getProperty("PenaltyFreezeSeconds"));
+        assertEquals("4", combinations.get(1).getProperty("ComputerPlayers"));
+        assertEquals("3", combinations.get(5).getProperty("PenaltyFreezeSeconds"));
+        for (Properties combination : combinations)
+            assertEquals("3", combination.getProperty("Rows"));
+        assertEquals(1, base.size());
+    }
+
+    @Test
+    void play_AggregatesTheGames() {
+        Properties properties = new Properties();
+        properties = Headless.headlessProperties(properties);
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("BotProfiles", "instant, random");
+        properties.setProperty("RandomSeed", "1");
+        Logger logger = Logger.getAnonymousLogger();
+
+        try (GameHost host = new GameHost(2)) {
+            Tournament.Standings standings = Tournament.play(host, logger, properties, 10);
+            assertEquals(10, standings.games);
+            assertTrue(standings.points[0] > standings.points[1]);
+            assertEquals(Arrays.stream(standings.points).sum(), standings.totalFindLatency.getCount());
+            assertTrue(standings.report().contains("instant"));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserInterfaceDispatcherTest {
+
+    private RecordingUserInterface target;
+    private UserInterfaceDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        Config config = new Config(Logger.getAnonymousLogger(), new Properties());
+        target = new RecordingUserInterface(config, true);
+        dispatcher = new UserInterfaceDispatcher(target, config);
+    }
+
+    private void assertEvent(int index, RecordingUserInterface.EventType type, int a, int b) {
+        assertEquals(type, target.eventType(index));
+        assertArrayEquals(new int[]{a, b}, new int[]{target.eventArgument(index, 0), target.eventArgument(index, 1)});
+    }
+
+    @Test
+    void flush_CoalescesCallsOfFrame() throws Exception {
+        dispatcher.placeCard(1, 0);
+        dispatcher.removeCard(0);
+        dispatcher.placeCard(2, 0);
+        dispatcher.placeCard(3, 1);
+        dispatcher.removeCard(1);
+        dispatcher.placeToken(0, 0);
+        dispatcher.removeToken(0, 0);
+        dispatcher.placeToken(1, 0);
+        dispatcher.setScore(0, 1);
+        dispatcher.setScore(0, 2);
+        dispatcher.setCountdown(5000, false);
+        dispatcher.setCountdown(4000, true);
+        EventQueue.invokeAndWait(dispatcher::flush);
+
+        assertEquals(4, target.eventCount());
+        assertEvent(0, RecordingUserInterface.EventType.PLACE_CARD, 2, 0);
+        assertEvent(1, RecordingUserInterface.EventType.PLACE_TOKEN, 1, 0);
+        assertEvent(2, RecordingUserInterface.EventType.SCORE, 0, 2);
+        assertEvent(3, RecordingUserInterface.EventType.COUNTDOWN, 4000, 1);
+    }
+
+    @Test
+    void flush_ForwardsChangesSincePreviousFrame() throws Exception {
+        dispatcher.placeCard(2, 0);
+        dispatcher.placeToken(1, 0);
+        EventQueue.invokeAndWait(dispatcher::flush);
+        target.clearEvents();
+
+        dispatcher.removeTokens();
+        dispatcher.placeCard(2, 0);
+        dispatcher.setFreeze(1, 0);
+        dispatcher.announceWinner(new int[]{1});
+        EventQueue.invokeAndWait(dispatcher::flush);
+        EventQueue.invokeAndWait(dispatcher::flush);
+
+        assertEquals(2, target.eventCount());
+        assertEvent(0, RecordingUserInterface.EventType.REMOVE_TOKEN, 1, 0);
+        assertEquals(RecordingUserInterface.EventType.ANNOUNCE_WINNER, target.eventType(1));
+        assertArrayEquals(new int[]{1}, target.getWinners());
+    }
+}
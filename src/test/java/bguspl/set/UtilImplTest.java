@@ -0,0 +1,174 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    UtilImpl util;
+    Config config;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        config = new Config(Logger.getAnonymousLogger(), properties);
+        util = new UtilImpl(config);
+    }
+
+    /**
+     * Counts the legal sets in the deck by testing every combination of three cards.
+     */
+    private int bruteForceCount(List<Integer> deck) {
+        int sets = 0;
+        for (int i = 0; i < deck.size(); ++i)
+            for (int j = i + 1; j < deck.size(); ++j)
+                for (int k = j + 1; k < deck.size(); ++k)
+                    if (util.testSet(new int[]{deck.get(i), deck.get(j), deck.get(k)}))
+                        ++sets;
+        return sets;
+    }
+
+    @Test
+    void completeSet_FormsLegalSet() {
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b) {
+                int c = util.completeSet(a, b);
+                assertTrue(c != a && c != b);
+                assertTrue(util.testSet(new int[]{a, b, c}));
+            }
+    }
+
+    @Test
+    void cardToFeatures_BaseFeatureSizeDigits() {
+        // card 2101 in base 3
+        assertArrayEquals(new int[]{2, 1, 0, 1}, util.cardToFeatures(2 * 27 + 9 + 1));
+        assertArrayEquals(new int[][]{{0, 0, 0, 0}, {2, 2, 2, 2}}, util.cardsToFeatures(new int[]{0, 80}));
+    }
+
+    @Test
+    void cardToFeatures_ModifiedCopy_OtherGamesUnaffected() {
+        util.cardToFeatures(0)[0] = 1;
+        util.cardsToFeatures(new int[]{0})[0][1] = 2;
+
+        UtilImpl other = new UtilImpl(config); // shares the feature table
+        assertArrayEquals(new int[]{0, 0, 0, 0}, other.cardToFeatures(0));
+        assertTrue(other.testSet(new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void testSet_GeneralizedFeatureSize() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "2");
+        UtilImpl util4 = new UtilImpl(new Config(Logger.getAnonymousLogger(), properties));
+
+        // 00, 11, 22, 33 differ in both features
+        assertTrue(util4.testSet(new int[]{0, 5, 10, 15}));
+        // 00, 01, 02, 03 are same same in the first feature
+        assertTrue(util4.testSet(new int[]{0, 1, 2, 3}));
+        // 00, 01, 02, 13 are neither
+        assertFalse(util4.testSet(new int[]{0, 1, 2, 7}));
+        // 4 rows and 4 columns and 2 * 4! diagonals
+        List<Integer> deck = IntStream.range(0, 16).boxed().collect(Collectors.toList());
+        assertEquals(4 + 4 + 24, util4.findSets(deck, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void findSets_FullDeck() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+
+        // every pair of cards is in exactly one set
+        assertEquals(config.deckSize * (config.deckSize - 1) / 6, sets.size());
+        for (int[] set : sets) {
+            assertTrue(set[0] < set[1] && set[1] < set[2]);
+            assertTrue(util.testSet(set));
+        }
+    }
+
+    @Test
+    void findSets_RandomDecksMatchBruteForce() {
+        Random random = new Random(7);
+        List<Integer> cards = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 50; ++round) {
+            Collections.shuffle(cards, random);
+            List<Integer> deck = new ArrayList<>(cards.subList(0, 1 + random.nextInt(20)));
+            assertEquals(bruteForceCount(deck), util.findSets(deck, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+        assertEquals(5, util.findSets(deck, 5).size());
+    }
+
+    @Test
+    void findSets_LargeDeckInParallel() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "5");
+        UtilImpl util5 = new UtilImpl(new Config(Logger.getAnonymousLogger(), properties));
+        List<Integer> deck = IntStream.range(0, 243).boxed().collect(Collectors.toList());
+
+        List<int[]> sets = util5.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(243 * 242 / 6, sets.size());
+        assertEquals(243 * 242 / 6, sets.stream().map(Arrays::toString).distinct().count());
+        assertEquals(1, util5.findSets(deck, 1).size());
+        assertEquals(100, util5.findSets(deck, 100).size());
+    }
+
+    @Test
+    void parallelSetFinder_GeneralizedFeatureSize() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "3");
+        Config config4 = new Config(Logger.getAnonymousLogger(), properties);
+        UtilImpl util4 = new UtilImpl(config4);
+        ParallelSetFinder finder = new ParallelSetFinder(FeatureTable.of(config4));
+        List<Integer> deck = IntStream.range(0, config4.deckSize).boxed().collect(Collectors.toList());
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        assertEquals(util4.findSets(deck, Integer.MAX_VALUE).size(), finder.findSets(cards, Integer.MAX_VALUE).size());
+        assertEquals(3, finder.findSets(cards, 3).size());
+    }
+
+    @Test
+    void findSets_NoSets() {
+        // 0000, 0001, 0010, 0011 contain no set
+        List<Integer> deck = new ArrayList<>();
+        Collections.addAll(deck, 0, 1, 3, 4);
+        assertTrue(util.findSets(deck, Integer.MAX_VALUE).isEmpty());
+        assertFalse(util.findSets(new ArrayList<>(), 1).iterator().hasNext());
+    }
+
+    @Test
+    void findSets_ReusedAcrossCalls() {
+        List<Integer> deck = new ArrayList<>();
+        Collections.addAll(deck, 0, 1, 2);
+        assertArrayEquals(new int[]{0, 1, 2}, util.findSets(deck, 1).get(0));
+
+        // the presence bitmap must not leak cards from the previous search
+        deck.remove(2);
+        Collections.addAll(deck, 3, 4);
+        assertTrue(util.findSets(deck, Integer.MAX_VALUE).isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Headless;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotServiceTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    @Test
+    void parse_NamedAndCustomProfiles() {
+        BotProfile expert = BotProfile.parse(" Expert ");
+        assertEquals("expert", expert.name);
+        assertFalse(expert.random);
+        assertTrue(BotProfile.parse("random").random);
+
+        BotProfile custom = BotProfile.parse("1500:200:0.05");
+        assertEquals(1500, custom.thinkMillis);
+        assertEquals(200, custom.keyMillis);
+        assertEquals(0.05, custom.mistakeRate);
+    }
+
+    @Test
+    void parse_UnknownProfile_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> BotProfile.parse("genius"));
+        assertThrows(IllegalArgumentException.class, () -> BotProfile.parse("100:10"));
+        assertThrows(IllegalArgumentException.class, () -> BotProfile.parse("100:10:2"));
+    }
+
+    @Test
+    void step_InstantBotsTakeTheSets() throws Exception {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "3");
+        properties = Headless.headlessProperties(properties);
+        properties.setProperty("RandomSeed", "7");
+        Config config = new Config(logger, properties);
+        RecordingUserInterface ui = new RecordingUserInterface(config, true);
+
+        try (GameHost host = new GameHost(2)) {
+            GameHost.Game game = host.create(new Env(logger, config, ui, new UtilImpl(config)));
+            game.start();
+            int[] scores = game.result().get(30, TimeUnit.SECONDS);
+
+            // the bots do not make mistakes, so they take every set until the deck runs out of them
+            assertTrue(Arrays.stream(scores).sum() * config.featureSize >= config.deckSize - config.tableSize);
+            assertEquals(RecordingUserInterface.EventType.ANNOUNCE_WINNER, ui.eventType(ui.eventCount() - 1));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    private static ClaimQueue.Claim claim(int player, long timestamp) {
+        return new ClaimQueue.Claim(player, new int[0], new int[0], new int[0], timestamp);
+    }
+
+    @Test
+    void drain_OldestFirst() {
+        ClaimQueue queue = new ClaimQueue();
+        assertNull(queue.drain());
+        for (int i = 0; i < 5; ++i)
+            queue.offer(claim(0, i));
+
+        int expected = 0;
+        for (ClaimQueue.Claim claim = queue.drain(); claim != null; claim = claim.next())
+            assertEquals(expected++, claim.timestamp);
+        assertEquals(5, expected);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void offer_ConcurrentProducers() throws InterruptedException {
+        int producers = 4, claimsPerProducer = 10000;
+        ClaimQueue queue = new ClaimQueue();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int player = p;
+            threads[p] = new Thread(() -> {
+                try { start.await(); } catch (InterruptedException ignored) {}
+                for (int i = 0; i < claimsPerProducer; ++i)
+                    queue.offer(claim(player, i));
+            });
+            threads[p].start();
+        }
+        start.countDown();
+
+        // drain while producing: every claim arrives once, and each producer's claims arrive in order
+        long[] next = new long[producers];
+        int received = 0;
+        while (received < producers * claimsPerProducer) {
+            for (ClaimQueue.Claim claim = queue.drain(); claim != null; claim = claim.next()) {
+                assertEquals(next[claim.player]++, claim.timestamp);
+                ++received;
+            }
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(queue.isEmpty());
+    }
+}
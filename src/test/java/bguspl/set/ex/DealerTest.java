@@ -0,0 +1,199 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    private Player[] players;
+    private Table table;
+    private Dealer dealer;
+
+    @BeforeEach
+    void setUp() {
+        createGame(new Properties());
+        dealer.step(); // deals the cards
+    }
+
+    /**
+     * Creates a game of two human players (the cards are not dealt yet).
+     *
+     * @param properties - the properties that differ from the defaults of the tests.
+     */
+    private void createGame(Properties properties) {
+        properties.putIfAbsent("HumanPlayers", "2");
+        properties.putIfAbsent("ComputerPlayers", "0");
+        properties.putIfAbsent("TableDelaySeconds", "0");
+        properties.putIfAbsent("RandomSeed", "3");
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new RecordingUserInterface(config, false), new UtilImpl(config));
+        players = new Player[config.players];
+        table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+    }
+
+    /**
+     * Creates a game with a turn timeout, deals the cards and asserts the deadline returned by the dealing step.
+     *
+     * @param delay - the expected time from the step to its deadline (Long.MAX_VALUE for none).
+     */
+    private void assertDealDeadline(String turnTimeoutSeconds, String warningSeconds, long delay) {
+        Properties properties = new Properties();
+        properties.setProperty("TurnTimeoutSeconds", turnTimeoutSeconds);
+        properties.setProperty("TurnTimeoutWarningSeconds", warningSeconds);
+        createGame(properties);
+        long before = System.currentTimeMillis();
+        long deadline = dealer.step();
+        long after = System.currentTimeMillis();
+        if (delay == Long.MAX_VALUE) assertEquals(Long.MAX_VALUE, deadline);
+        else assertTrue(deadline >= before + delay && deadline <= after + delay,
+                "deadline in " + (deadline - before) + "ms, expected " + delay + "ms");
+        assertEquals(12, table.countCards());
+    }
+
+    /**
+     * Places the tokens of a player on the slots of a legal set on the table (the same set for every player).
+     *
+     * @return - the cards of the set.
+     */
+    private int[] placeTokensOnSet(int player, int[] slots, int[] versions) {
+        int[] cards = table.getSets(1).get(0);
+        for (int i = 0; i < cards.length; ++i) {
+            slots[i] = table.getSlotOfCard(cards[i]);
+            table.placeToken(player, slots[i]);
+            versions[i] = table.getTokenVersion(player, slots[i]);
+        }
+        return cards;
+    }
+
+    @Test
+    void judge_LegalSet_Point() {
+        int[] slots = new int[3], versions = new int[3];
+        int[] cards = placeTokensOnSet(0, slots, versions);
+
+        dealer.submitedSet(0, slots, cards, versions);
+        dealer.removeCardsFromTable();
+        assertEquals(1, players[0].getScore());
+        assertEquals(Table.EMPTY, table.getSlotOfCard(cards[0]));
+    }
+
+    @Test
+    void judge_SlotReplacedAfterTheTokenWasPlaced_Dismissed() {
+        int[] slots = new int[3], versions = new int[3];
+        int[] cards = placeTokensOnSet(0, slots, versions);
+
+        // the card is put back in its slot (as by a reshuffle), the player never selected it again
+        table.removeCard(slots[0]);
+        table.placeCard(cards[0], slots[0]);
+        dealer.submitedSet(0, slots, cards, versions);
+        dealer.removeCardsFromTable();
+        assertEquals(0, players[0].getScore());
+        assertEquals(slots[0], table.getSlotOfCard(cards[0]));
+    }
+
+    @Test
+    void step_OverlappingClaimsInOneBatch_OldestJudgedFirst() {
+        int[] slots0 = new int[3], versions0 = new int[3], slots1 = new int[3], versions1 = new int[3];
+        int[] cards = placeTokensOnSet(0, slots0, versions0);
+        placeTokensOnSet(1, slots1, versions1);
+
+        // both claims are drained in a single step: the older one takes the set, and the other one is dismissed once
+        // the cards of the set were discarded (it is not penalized)
+        dealer.submitedSet(1, slots1, cards, versions1);
+        dealer.submitedSet(0, slots0, cards, versions0);
+        dealer.step();
+        assertEquals(1, players[1].getScore());
+        assertEquals(0, players[0].getScore());
+        assertEquals(0, players[0].getFreezeMillis(System.currentTimeMillis()));
+        assertEquals(Table.EMPTY, table.getSlotOfCard(cards[0]));
+        assertTrue(players[0].acceptsKeys());
+    }
+
+    @Test
+    void step_Countdown_NextSecond() {
+        assertDealDeadline("60", "5", 1000);
+    }
+
+    @Test
+    void step_CountdownWarning_EveryTenMillis() {
+        assertDealDeadline("60", "60", 10);
+    }
+
+    @Test
+    void step_CountdownBeforeWarning_StartOfWarning() {
+        assertDealDeadline("5.5", "5", 500);
+    }
+
+    @Test
+    void step_Elapsed_NextSecond() {
+        assertDealDeadline("0", "5", 1000);
+    }
+
+    @Test
+    void step_NoTimer_WaitsForWakeup() {
+        assertDealDeadline("-1", "5", Long.MAX_VALUE);
+    }
+
+    @Test
+    void step_TurnTimedOut_Reshuffles() throws InterruptedException {
+        assertDealDeadline("0.05", "5", 10);
+        Thread.sleep(60);
+        assertEquals(0, dealer.step()); // the cards are dealt again right away
+        assertEquals(0, table.countCards());
+        long deadline = dealer.step();
+        assertEquals(12, table.countCards());
+        assertTrue(deadline > System.currentTimeMillis());
+    }
+
+    @Test
+    void step_QueuedClaims_Immediately() {
+        Properties properties = new Properties();
+        properties.setProperty("TurnTimeoutSeconds", "-1");
+        createGame(properties);
+
+        // a claim that arrives while the cards are dealt is judged in the next step, right away
+        dealer.submitedSet(0, new int[]{0, 1, 2}, new int[]{Table.EMPTY, Table.EMPTY, Table.EMPTY}, new int[3]);
+        assertEquals(0, dealer.step());
+        assertEquals(Long.MAX_VALUE, dealer.step());
+        assertEquals(0, players[0].getScore());
+    }
+
+    @Test
+    void step_LastSetDiscarded_GameOver() {
+        // the 9 cards of 2 features form 12 sets, the 6 cards left after a set form 2 sets, and the 3 cards left then 1
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", "2");
+        properties.setProperty("Rows", "3");
+        properties.setProperty("Columns", "3");
+        properties.setProperty("PlayerKeys1", "81,87,69,65,83,68,90,88,67");
+        properties.setProperty("PlayerKeys2", "85,73,79,74,75,76,77,44,46");
+        createGame(properties);
+        dealer.step();
+        assertEquals(9, table.countCards());
+
+        for (int set = 0; set < 3; ++set) {
+            int[] slots = new int[3], versions = new int[3];
+            int[] cards = placeTokensOnSet(0, slots, versions);
+            dealer.submitedSet(0, slots, cards, versions);
+            long deadline = dealer.step();
+            assertEquals(set + 1, players[0].getScore());
+            assertEquals(6 - 3 * set, table.countCards());
+            // the game is over exactly when no set is left in the deck and on the table
+            assertEquals(set == 2, deadline == Dealer.GAME_OVER);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    private static int[] drawAll(Deck deck) {
+        int[] cards = new int[deck.size()];
+        for (int i = 0; i < cards.length; ++i)
+            cards[i] = deck.draw();
+        return cards;
+    }
+
+    @Test
+    void draw_EveryCardOnce() {
+        Deck deck = new Deck(81, new SplittableRandom(1));
+        boolean[] drawn = new boolean[81];
+        for (int card : drawAll(deck)) {
+            assertTrue(!drawn[card]);
+            drawn[card] = true;
+        }
+        assertTrue(deck.isEmpty());
+    }
+
+    @Test
+    void draw_SameSeedSameOrder() {
+        assertArrayEquals(drawAll(new Deck(81, new SplittableRandom(42))), drawAll(new Deck(81, new SplittableRandom(42))));
+    }
+
+    @Test
+    void add_ReturnedCardIsDrawnAgain() {
+        Deck deck = new Deck(3, new SplittableRandom(3));
+        int card = deck.draw();
+        deck.draw();
+        deck.draw();
+        deck.add(card);
+        assertEquals(1, deck.size());
+        assertEquals(card, deck.draw());
+    }
+}
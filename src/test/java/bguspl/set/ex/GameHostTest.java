@@ -0,0 +1,74 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Headless;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    @Test
+    void start_ManyGamesOnFewThreads() throws Exception {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "2");
+        properties = Headless.headlessProperties(properties);
+        Util util = new UtilImpl(new Config(logger, properties));
+
+        try (GameHost host = new GameHost(2)) {
+            GameHost.Game[] games = new GameHost.Game[20];
+            for (int i = 0; i < games.length; ++i) {
+                properties.setProperty("RandomSeed", Integer.toString(i));
+                Config config = new Config(logger, properties);
+                games[i] = host.create(new Env(logger, config, new RecordingUserInterface(config, true), util));
+            }
+            for (GameHost.Game game : games)
+                game.start();
+
+            for (GameHost.Game game : games) {
+                int[] scores = game.result().get(30, TimeUnit.SECONDS);
+                RecordingUserInterface ui = (RecordingUserInterface) game.env.ui;
+                assertTrue(Arrays.stream(scores).sum() * 3 >= game.env.config.deckSize / 3);
+                for (int player = 0; player < scores.length; ++player)
+                    assertEquals(scores[player], ui.getScore(player));
+                assertEquals(RecordingUserInterface.EventType.ANNOUNCE_WINNER, ui.eventType(ui.eventCount() - 1));
+            }
+            assertEquals(0, host.activeGames());
+            assertThrows(IllegalStateException.class, games[0]::start);
+        }
+    }
+
+    @Test
+    void terminate_EndsGameWithoutComputerPlayers() throws Exception {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "0");
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        RecordingUserInterface ui = new RecordingUserInterface(config, true);
+
+        try (GameHost host = new GameHost(1)) {
+            GameHost.Game game = host.create(new Env(logger, config, ui, new UtilImpl(config)));
+            game.start();
+            assertEquals(1, host.activeGames());
+            game.terminate();
+
+            assertArrayEquals(new int[]{0, 0}, game.result().get(30, TimeUnit.SECONDS));
+            assertArrayEquals(new int[]{0, 1}, ui.getWinners());
+        }
+    }
+}
@@ -11,11 +11,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,4 +75,45 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits until the player thread is parked on its wakeup signal.
+     */
+    private void awaitParked(Thread thread) throws InterruptedException {
+        for (int i = 0; i < 500 && LockSupport.getBlocker(thread) != player.wakeup(); ++i)
+            Thread.sleep(10);
+        assertSame(player.wakeup(), LockSupport.getBlocker(thread));
+        assertEquals(Thread.State.WAITING, thread.getState()); // with no deadline
+    }
+
+    @Test
+    void run_IdlePlayerParks_KeyPressWakesIt() throws InterruptedException {
+        Thread thread = new Thread(player, "player0");
+        thread.start();
+        try {
+            awaitParked(thread);
+            assertTrue(player.offerKey(1));
+            verify(table, timeout(5000)).getCardInSlot(1); // the key press was handled
+            awaitParked(thread);
+        } finally {
+            player.terminate();
+            thread.join(5000);
+        }
+        assertFalse(thread.isAlive());
+    }
+
+    @Test
+    void verdicts_WakePlayer() {
+        assertEquals(Long.MAX_VALUE, player.act()); // an idle player waits for a signal only
+        assertFalse(player.wakeup().await(0));
+
+        player.claimDismissed();
+        assertTrue(player.wakeup().await(0));
+        player.point();
+        assertTrue(player.wakeup().await(0));
+        player.penalty();
+        assertTrue(player.wakeup().await(0));
+        assertTrue(player.act() <= System.currentTimeMillis() + 1000); // the freeze display is updated every second
+        verify(ui).setFreeze(eq(player.id), longThat(millis -> millis > 2900 && millis <= 3000)); // the penalty
+    }
+}
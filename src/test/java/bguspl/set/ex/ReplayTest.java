@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Headless;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    @Test
+    void run_ReproducesJournaledGame(@TempDir Path directory) throws IOException {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "3");
+        properties = Headless.headlessProperties(properties);
+        properties.setProperty("BotProfiles", "random, instant");
+        properties.setProperty("RandomSeed", "11");
+        properties.setProperty("JournalFile", directory.resolve("game-%d.bin").toString());
+        Config config = new Config(logger, properties);
+
+        int[] scores = Headless.play(new Env(logger, config, new RecordingUserInterface(config, false),
+                new UtilImpl(config)));
+        Replay replay = Replay.run(directory.resolve("game-11.bin"), logger);
+
+        assertTrue(replay.steps > 0);
+        assertEquals(0, replay.divergences);
+        assertArrayEquals(scores, replay.scores);
+    }
+
+    @Test
+    void run_EventInsideClaim_Throws(@TempDir Path directory) throws IOException {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "2");
+        properties = Headless.headlessProperties(properties);
+        properties.setProperty("RandomSeed", "5");
+        properties.setProperty("JournalFile", directory.resolve("game-%d.bin").toString());
+        Config config = new Config(logger, properties);
+        Headless.play(new Env(logger, config, new RecordingUserInterface(config, false), new UtilImpl(config)));
+
+        // a token of another player between a claim and its cards
+        Path file = directory.resolve("game-5.bin");
+        byte[] journal = Files.readAllBytes(file);
+        int claim = Journal.HEADER_SIZE;
+        while (journal[claim] != Journal.CLAIM)
+            claim += Journal.RECORD_SIZE;
+        journal[claim + Journal.RECORD_SIZE] = Journal.TOKEN_PLACED;
+        journal[claim + Journal.RECORD_SIZE + 1] = (byte) (journal[claim + 1] ^ 1);
+        Files.write(file, journal);
+
+        assertThrows(IOException.class, () -> Replay.run(file, logger));
+    }
+
+    @Test
+    void run_NotAJournal_Throws(@TempDir Path directory) throws IOException {
+        Path file = Files.write(directory.resolve("game.bin"), new byte[Journal.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> Replay.run(file, logger));
+    }
+}
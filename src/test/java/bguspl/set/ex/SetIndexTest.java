@@ -0,0 +1,82 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.FeatureTable;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetIndexTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    /**
+     * Adds and removes random cards and checks the index against a full search after every change.
+     */
+    private void assertMatchesFullSearch(Config config, boolean retainSets, int maxCards) {
+        UtilImpl util = new UtilImpl(config);
+        SetIndex index = new SetIndex(FeatureTable.of(config), retainSets);
+        List<Integer> cards = new ArrayList<>();
+        Random random = new Random(17);
+
+        for (int round = 0; round < 300; ++round) {
+            int card = random.nextInt(config.deckSize);
+            if (cards.contains(card)) {
+                assertTrue(index.remove(card));
+                cards.remove((Integer) card);
+            } else if (cards.size() < maxCards) {
+                assertTrue(index.add(card));
+                cards.add(card);
+            }
+
+            List<int[]> expected = util.findSets(cards, Integer.MAX_VALUE);
+            assertEquals(expected.size(), index.count());
+            assertEquals(cards.size(), index.size());
+            if (retainSets)
+                for (int[] set : index.sets(Integer.MAX_VALUE)) {
+                    assertTrue(util.testSet(set));
+                    for (int member : set) // no set outlives the removal of its cards
+                        assertTrue(index.contains(member));
+                }
+        }
+    }
+
+    @Test
+    void triples_RetainedSets() {
+        assertMatchesFullSearch(config(3, 4), true, 20);
+    }
+
+    @Test
+    void triples_CountOnly() {
+        assertMatchesFullSearch(config(3, 4), false, 81);
+    }
+
+    @Test
+    void generalizedFeatureSize() {
+        assertMatchesFullSearch(config(4, 2), true, 16);
+    }
+
+    @Test
+    void addAndRemove_Twice() {
+        SetIndex index = new SetIndex(FeatureTable.of(config(3, 4)), true);
+        assertTrue(index.add(5));
+        assertFalse(index.add(5));
+        assertTrue(index.remove(5));
+        assertFalse(index.remove(5));
+        assertFalse(index.contains(5));
+    }
+}
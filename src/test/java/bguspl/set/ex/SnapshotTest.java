@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.RecordingUserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    private Player[] players;
+    private Table table;
+    private Dealer dealer;
+
+    private void createGame(Path snapshotFile) {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("RandomSeed", "5");
+        properties.setProperty("SnapshotFile", snapshotFile.toString());
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new RecordingUserInterface(config, false), new UtilImpl(config));
+        players = new Player[config.players];
+        table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+    }
+
+    @Test
+    void restore_RebuildsTheGame(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("game.snapshot");
+        createGame(file);
+        assertFalse(dealer.restore());
+        dealer.step(); // deals the cards and takes the first snapshot
+        table.placeToken(1, 4);
+        int[] cards = table.getSlotToCard();
+        Snapshot.Writer.awaitWrites();
+        assertTrue(Files.exists(file));
+
+        createGame(file);
+        assertTrue(dealer.restore());
+        assertArrayEquals(cards, table.getSlotToCard());
+        assertEquals(0, table.getTokens()[1].length); // the token was placed after the snapshot
+        assertEquals(0, players[0].getScore());
+
+        dealer.endGame();
+        Snapshot.Writer.awaitWrites();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void restore_InvalidTokens_Throws(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("game.snapshot");
+        createGame(file);
+        int[] slotToCard = new int[12];
+        Arrays.fill(slotToCard, -1);
+        slotToCard[0] = 5;
+        int[] deck = {1, 2};
+        Snapshot outOfTable = new Snapshot(false, 0, slotToCard, deck, new int[2], new long[2], new int[][]{{0}, {12}});
+        Files.write(file, outOfTable.encode().array());
+        assertThrows(IOException.class, dealer::restore);
+
+        Snapshot emptySlot = new Snapshot(false, 0, slotToCard, deck, new int[2], new long[2], new int[][]{{0}, {3}});
+        Files.write(file, emptySlot.encode().array());
+        assertThrows(IOException.class, dealer::restore);
+
+        Snapshot negativeScore = new Snapshot(false, 0, slotToCard, deck, new int[]{0, -1}, new long[2],
+                new int[][]{{0}, {}});
+        Files.write(file, negativeScore.encode().array());
+        assertThrows(IOException.class, dealer::restore);
+    }
+
+    @Test
+    void read_EncodedSnapshot(@TempDir Path directory) throws IOException {
+        Snapshot snapshot = new Snapshot(false, 1200, new int[]{3, -1, 70}, new int[]{1, 2, 80},
+                new int[]{4, 0}, new long[]{0, 2500}, new int[][]{{0, 2}, {}});
+        Path file = directory.resolve("game.snapshot");
+        Files.write(file, snapshot.encode().array());
+
+        Snapshot read = Snapshot.read(file);
+        assertEquals(1200, read.turnElapsed);
+        assertArrayEquals(snapshot.slotToCard, read.slotToCard);
+        assertArrayEquals(snapshot.deck, read.deck);
+        assertArrayEquals(snapshot.scores, read.scores);
+        assertArrayEquals(snapshot.freezes, read.freezes);
+        assertArrayEquals(snapshot.tokens[0], read.tokens[0]);
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> Snapshot.read(file));
+    }
+}
@@ -7,17 +7,22 @@ import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
 
     @BeforeEach
     void setUp() {
@@ -32,34 +37,32 @@ class TableTest {
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
         Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        slotToCard = new int[config.tableSize];
+        cardToSlot = new int[config.deckSize];
+        Arrays.fill(slotToCard, Table.EMPTY);
+        Arrays.fill(cardToSlot, Table.EMPTY);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
     private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
+        table.placeCard(3, 1);
+        table.placeCard(5, 2);
 
         return 2;
     }
 
     private void fillAllSlots() {
-        for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
-        }
+        for (int i = 0; i < slotToCard.length; ++i)
+            table.placeCard(i, i);
     }
 
     private void placeSomeCardsAndAssert() {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard[2]);
+        assertEquals(2, cardToSlot[8]);
     }
 
     @Test
@@ -95,6 +98,276 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void countSets_UpdatedOnPlaceAndRemove() {
+        // 0000, 0001, 0002 form a set, 0010 does not complete any
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(3, 2);
+        assertTrue(table.isDead());
+
+        table.placeCard(2, 3);
+        assertEquals(1, table.countSets());
+        assertArrayEquals(new int[]{0, 1, 2}, table.getSets(1).get(0));
+
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+        assertTrue(table.isDead());
+    }
+
+    @Test
+    void removeCard_EmptySlot() {
+        table.removeCard(0);
+        assertEquals(0, table.countCards());
+    }
+
+    @Test
+    void placeCard_ReplacesTheCardInTheSlot() {
+        fillAllSlots();
+        table.placeCard(8, 2);
+
+        assertEquals(slotToCard.length, table.countCards());
+        assertEquals(Table.EMPTY, cardToSlot[2]);
+        assertEquals(Table.EMPTY, table.getSlotOfCard(2));
+        assertEquals(2, table.getSlotOfCard(8));
+    }
+
+    @Test
+    void getSlotVersion_ChangesWithTheCardInTheSlot() {
+        int version = table.getSlotVersion(1);
+        table.placeCard(3, 1);
+        int placed = table.getSlotVersion(1);
+        table.removeCard(1);
+        int removed = table.getSlotVersion(1);
+        table.placeCard(3, 1);
+
+        assertTrue(version != placed && placed != removed && removed != table.getSlotVersion(1));
+        assertEquals(version, table.getSlotVersion(0));
+        assertEquals(Table.EMPTY, table.getCardInSlot(0));
+        assertEquals(3, table.getCardInSlot(1));
+    }
+
+    @Test
+    void placeToken_TokensAreKeptPerPlayer() {
+        fillAllSlots();
+        assertTrue(table.placeToken(0, 3));
+        assertTrue(table.placeToken(0, 1));
+        assertTrue(table.placeToken(1, 3));
+        assertFalse(table.placeToken(0, 3));
+
+        assertArrayEquals(new int[]{1, 3}, table.getPlayerTokens(0));
+        assertEquals(0b1010, table.getPlayerTokenMask(0));
+        assertTrue(table.getPlayerTokenState(1, 3));
+        assertTrue(table.removeToken(0, 1));
+        assertFalse(table.removeToken(0, 1));
+        assertArrayEquals(new int[]{3}, table.getPlayerTokens(0));
+    }
+
+    @Test
+    void removeTokens_RemovesTheTokensOfAllPlayers() {
+        fillAllSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 0);
+
+        table.removeTokens(2);
+        assertEquals(0, table.getPlayerTokenMask(0));
+        assertArrayEquals(new int[]{0}, table.getPlayerTokens(1));
+        table.removeAllTokens();
+        assertEquals(0, table.getPlayerTokenMask(1));
+    }
+
+    @Test
+    void removeTokens_ConcurrentWithPlayers() throws InterruptedException {
+        fillAllSlots();
+        int players = 2;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[players];
+        for (int i = 0; i < players; ++i) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int n = 0; !done.get(); ++n) {
+                    int slot = n % slotToCard.length;
+                    if (!table.placeToken(player, slot)) table.removeToken(player, slot);
+                }
+            });
+            threads[i].start();
+        }
+        for (int n = 0; n < 100_000; ++n)
+            table.removeTokens(n % slotToCard.length);
+        done.set(true);
+        for (Thread thread : threads)
+            thread.join();
+
+        // every token left is found (and removed) through the mask of its slot
+        table.removeAllTokens();
+        for (int player = 0; player < players; ++player)
+            assertEquals(0, table.getPlayerTokenMask(player));
+    }
+
+    @Test
+    void removeTokens_MoreThan64Players() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "100");
+        properties.put("TableDelaySeconds", "0");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        table = new Table(new Env(logger, config, new MockUserInterface(), new MockUtil()));
+        table.placeCard(0, 1);
+        table.placeToken(3, 1);
+        table.placeToken(70, 1);
+        table.placeToken(99, 1);
+
+        assertEquals(0b10, table.getPlayerTokenMask(70));
+        table.removeCard(1);
+        for (int player : new int[]{3, 70, 99})
+            assertEquals(0, table.getPlayerTokenMask(player));
+    }
+
+    @Test
+    void placeToken_EmptySlot() {
+        assertFalse(table.placeToken(0, 1));
+        assertEquals(0, table.getPlayerTokenMask(0));
+    }
+
+    @Test
+    void removeCard_RemovesTheTokensOnTheCard() {
+        fillAllSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 3);
+
+        table.removeCard(2);
+        assertEquals(0, table.getPlayerTokenMask(0));
+        assertArrayEquals(new int[]{3}, table.getPlayerTokens(1));
+    }
+
+    @Test
+    void removeCard_ConcurrentWithPlayers() throws InterruptedException {
+        fillAllSlots();
+        int players = 2;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[players];
+        for (int i = 0; i < players; ++i) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int n = 0; !done.get(); ++n) {
+                    int slot = n % slotToCard.length;
+                    if (!table.placeToken(player, slot)) table.removeToken(player, slot);
+                }
+            });
+            threads[i].start();
+        }
+        // the dealer replaces the card of one slot at a time, the players go on with the others
+        for (int n = 0; n < 100_000; ++n) {
+            int slot = n % slotToCard.length;
+            int card = table.getCardInSlot(slot);
+            table.removeCard(slot);
+            table.placeCard(card, slot);
+        }
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            table.removeCard(slot);
+        done.set(true);
+        for (Thread thread : threads)
+            thread.join();
+
+        // no token outlived the card it was placed on
+        for (int player = 0; player < players; ++player)
+            assertEquals(0, table.getPlayerTokenMask(player));
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            assertEquals(0, table.getSlotVersion(slot) % 2);
+    }
+
+    @Test
+    void getBoard_PublishedOnEveryChange() {
+        BoardSnapshot empty = table.getBoard();
+        table.placeCard(3, 1);
+        BoardSnapshot dealt = table.getBoard();
+        table.placeToken(1, 1);
+        BoardSnapshot token = table.getBoard();
+
+        assertTrue(empty.getVersion() < dealt.getVersion() && dealt.getVersion() < token.getVersion());
+        assertEquals(Table.EMPTY, empty.getCardInSlot(1));
+        assertEquals(0, empty.countCards());
+        assertEquals(3, dealt.getCardInSlot(1));
+        assertEquals(1, dealt.getSlotOfCard(3));
+        assertEquals(0, dealt.getPlayerTokenMask(1));
+        assertEquals(0b10, token.getPlayerTokenMask(1));
+
+        table.removeCard(1);
+        BoardSnapshot removed = table.getBoard();
+        assertEquals(Table.EMPTY, removed.getSlotOfCard(3));
+        assertEquals(0, removed.getPlayerTokenMask(1));
+        assertEquals(3, token.getCardInSlot(1)); // the earlier boards do not change
+    }
+
+    @Test
+    void getBoard_ConcurrentWithPlayers_NoTokenOnEmptySlot() throws InterruptedException {
+        fillAllSlots();
+        int players = 2;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[players];
+        for (int i = 0; i < players; ++i) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int n = 0; !done.get(); ++n) {
+                    int slot = n % slotToCard.length;
+                    if (!table.placeToken(player, slot)) table.removeToken(player, slot);
+                }
+            });
+            threads[i].start();
+        }
+        try {
+            for (int n = 0; n < 50_000; ++n) {
+                int slot = n % slotToCard.length;
+                int card = table.getCardInSlot(slot);
+                table.removeCard(slot);
+                assertConsistent(table.getBoard());
+                table.placeCard(card, slot);
+                assertConsistent(table.getBoard());
+            }
+        } finally {
+            done.set(true);
+            for (Thread thread : threads)
+                thread.join();
+        }
+    }
+
+    /**
+     * Asserts that no player has a token on an empty slot of a board.
+     */
+    private static void assertConsistent(BoardSnapshot board) {
+        long occupied = 0;
+        int[] cards = board.getSlotToCard();
+        for (int slot = 0; slot < cards.length; ++slot)
+            if (cards[slot] != Table.EMPTY) occupied |= 1L << slot;
+        for (int[] tokens : board.getTokens())
+            for (int slot : tokens)
+                assertTrue((occupied & 1L << slot) != 0, "a token on empty slot " + slot);
+    }
+
+    @Test
+    void getBoard_CardsVersionChangesWithTheCardsOnly() {
+        fillAllSlots();
+        long cards = table.getBoard().getCardsVersion();
+        table.placeToken(0, 1);
+        table.removeToken(0, 1);
+        assertEquals(cards, table.getBoard().getCardsVersion());
+
+        table.removeCard(2);
+        assertTrue(table.getBoard().getCardsVersion() > cards);
+    }
+
+    @Test
+    void getBoard_UnchangedTableKeepsTheBoard() {
+        fillAllSlots();
+        BoardSnapshot board = table.getBoard();
+        table.getSlotToCard();
+        table.removeToken(0, 1);
+        assertEquals(board, table.getBoard());
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void placeCard(int card, int slot) {}